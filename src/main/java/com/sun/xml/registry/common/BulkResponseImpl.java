@@ -19,6 +19,7 @@ package com.sun.xml.registry.common;
 import javax.xml.registry.*;
 import javax.xml.registry.infomodel.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import com.sun.xml.registry.common.util.*;
@@ -44,6 +45,9 @@ public class BulkResponseImpl extends JAXRResponseImpl implements BulkResponse {
     private ArrayList collection;
     private ArrayList exceptions;
     private boolean isPartial;
+    private ResponseFuture future;
+    private boolean cancelled;
+    private boolean started;
     
     public BulkResponseImpl(){
         super();
@@ -58,11 +62,7 @@ public class BulkResponseImpl extends JAXRResponseImpl implements BulkResponse {
      */
     public Collection getCollection() throws JAXRException {
         synchronized (this) {
-            while (!isAvailable()) {
-                try {
-                    this.wait();
-                } catch (InterruptedException e) {}
-            }
+            waitUntilAvailable();
 	    return (Collection) collection.clone();
         }
     }
@@ -101,11 +101,7 @@ public class BulkResponseImpl extends JAXRResponseImpl implements BulkResponse {
      */
     public Collection getExceptions() throws JAXRException {
         synchronized (this) {
-            while (!isAvailable()) {
-                try {
-                    this.wait();
-                } catch (InterruptedException e) {}
-            }
+            waitUntilAvailable();
             
             // exceptions collection is null if there are no errors
             if (exceptions != null) {
@@ -197,6 +193,11 @@ public class BulkResponseImpl extends JAXRResponseImpl implements BulkResponse {
     public void updateResponse(BulkResponse update) throws JAXRException {
 	synchronized (this) {
 	    
+            // a cancelled request already has its final content
+            if (cancelled) {
+                return;
+            }
+
 	    // set content and status
             setPartialResponse(update.isPartialResponse());
 	    collection = new ArrayList(update.getCollection());
@@ -205,9 +206,149 @@ public class BulkResponseImpl extends JAXRResponseImpl implements BulkResponse {
             }
 	    setStatus(update.getStatus());
 
-	    // wake up thread if waiting
-	    this.notify();
+	    // wake up threads if waiting
+	    this.notifyAll();
 	}
+        completeFuture();
+    }
+
+    /**
+     * Returns a future completed with this response once it is
+     * available, so that clients of asynchronous connections can
+     * compose on the result instead of blocking in getCollection().
+     * Cancelling the future cancels the request if it has not
+     * been sent yet; the response then fails with an exception.
+     * Once the request was sent, cancelling only completes the future
+     * with a CancellationException; the response still gets the
+     * result, so a caller can tell whether a save or delete happened.
+     */
+    public CompletableFuture getCompletableFuture() throws JAXRException {
+        synchronized (this) {
+            if (future == null) {
+                future = new ResponseFuture();
+            }
+        }
+        if (isAvailable()) {
+            completeFuture();
+        }
+        return future;
+    }
+
+    /**
+     * Same as getCompletableFuture(), but the future is completed with
+     * a TimeoutException if no response is available within the given
+     * time. A request not sent by then is cancelled as well, one that
+     * was sent still completes this response with its result.
+     */
+    public CompletableFuture getCompletableFuture(long timeout, TimeUnit unit)
+        throws JAXRException {
+        final CompletableFuture result = getCompletableFuture();
+        if (!result.isDone()) {
+            final ScheduledFuture timer = TimeoutScheduler.scheduler.schedule(
+                new Runnable() {
+                    public void run() {
+                        if (cancel(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("BulkResponseImpl:Request_timed_out")) ||
+                            isPending()) {
+                            result.completeExceptionally(new TimeoutException());
+                        }
+                    }
+                }, timeout, unit);
+            result.whenComplete(new java.util.function.BiConsumer() {
+                public void accept(Object response, Object failure) {
+                    timer.cancel(false);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the request was cancelled before it
+     * was sent.
+     */
+    public boolean isCancelled() {
+        synchronized (this) {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Called by the provider before it sends the request. Returns
+     * false if the request was cancelled and must not be sent; after
+     * this the request can no longer be cancelled.
+     */
+    public boolean startRequest() {
+        synchronized (this) {
+            if (cancelled) {
+                return false;
+            }
+            started = true;
+            return true;
+        }
+    }
+
+    private boolean isPending() {
+        synchronized (this) {
+            return status == STATUS_UNAVAILABLE;
+        }
+    }
+
+    // completes the response with an exception, unless the request
+    // was sent or the response is already available
+    private boolean cancel(String reason) {
+        synchronized (this) {
+            if (started || (status != STATUS_UNAVAILABLE)) {
+                return false;
+            }
+            cancelled = true;
+            addException(new JAXRException(reason));
+            this.notifyAll();
+            return true;
+        }
+    }
+
+    private void completeFuture() {
+        ResponseFuture f;
+        synchronized (this) {
+            f = future;
+        }
+        if (f != null) {
+            f.complete(this);
+        }
+    }
+
+    private void waitUntilAvailable() throws JAXRException {
+        while (!isAvailable()) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JAXRException(e);
+            }
+        }
+    }
+
+    private class ResponseFuture extends CompletableFuture {
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            BulkResponseImpl.this.cancel(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("BulkResponseImpl:Request_cancelled"));
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    // one daemon thread shared by all responses waiting for a timeout
+    private static class TimeoutScheduler {
+        static final ScheduledThreadPoolExecutor scheduler =
+            new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JAXR-response-timeout");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        static {
+            // responses arriving in time must not leave timers behind
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
     }
 
     /**
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.tools;
+
+import javax.xml.registry.*;
+import javax.xml.registry.infomodel.*;
+
+import java.util.*;
+
+/**
+ * Path index over the concepts of one ClassificationScheme. Each
+ * node of the trie holds a concept and maps the upper cased values
+ * of its children to their nodes, so a path without wildcards is
+ * resolved with one hash lookup per path element.
+ * <p>
+ * Path elements may be "*", matching any single concept, and an
+ * empty element ("//") matches any number of levels. For the latter
+ * every node is also listed by value, and a candidate is accepted if
+ * one of its ancestors was matched by the previous element.
+ * <p>
+ * An index over a FlatTaxonomy is built from its arrays and holds
+ * concept indexes; only the concept that is found gets created.
+ * An index over a MappedTaxonomy builds nothing: each level is a
+ * binary search of the children, which the store keeps sorted by
+ * value, and "//" looks the value up in the concepts sorted by value.
+ */
+class ConceptPathIndex {
+
+    static final String ANY_PATH = "*";
+
+    private final Node root = new Node(null, -1, null, 0);
+    // upper cased value to the List of nodes with that value,
+    // in breadth first order
+    private final HashMap nodesByValue = new HashMap();
+    // set if the nodes refer to concepts by index
+    private final FlatTaxonomy flat;
+    // set if the path is resolved on the mapped store
+    private final MappedTaxonomy mapped;
+
+    ConceptPathIndex(ClassificationScheme scheme) throws JAXRException {
+        flat = null;
+        mapped = null;
+        // breadth first so the lists in nodesByValue are ordered by depth
+        LinkedList pending = new LinkedList();
+        addChildren(root, scheme.getChildrenConcepts(), pending);
+        while (!pending.isEmpty()) {
+            Node node = (Node) pending.removeFirst();
+            addChildren(node, node.concept.getChildrenConcepts(), pending);
+        }
+    }
+
+    ConceptPathIndex(FlatTaxonomy flat) {
+        this.flat = flat;
+        mapped = null;
+        LinkedList pending = new LinkedList();
+        addChildren(root, flat.size(), pending);
+        while (!pending.isEmpty()) {
+            Node node = (Node) pending.removeFirst();
+            addChildren(node, node.index, pending);
+        }
+    }
+
+    ConceptPathIndex(MappedTaxonomy mapped) {
+        flat = mapped;
+        this.mapped = mapped;
+    }
+
+    private void addChildren(Node parent, Collection children, List pending)
+    throws JAXRException {
+        if (children == null)
+            return;
+        Iterator iter = children.iterator();
+        while (iter.hasNext()) {
+            Concept concept = (Concept) iter.next();
+            String value = concept.getValue();
+            if (value != null)
+                addChild(parent, new Node(concept, -1, parent, parent.depth + 1),
+                    value, pending);
+        }
+    }
+
+    private void addChildren(Node parent, int slot, List pending) {
+        int count = flat.getChildCount(slot);
+        for (int n = 0; n < count; n++) {
+            int index = flat.getChild(slot, n);
+            String value = flat.getValue(index);
+            if (value != null)
+                addChild(parent, new Node(null, index, parent, parent.depth + 1),
+                    value, pending);
+        }
+    }
+
+    private void addChild(Node parent, Node node, String value, List pending) {
+        String key = JAXRConceptsManager.indexKey(value);
+        if (parent.children == null)
+            parent.children = new HashMap();
+        // first child with a value wins, as with the linear search
+        if (!parent.children.containsKey(key))
+            parent.children.put(key, node);
+        parent.childList().add(node);
+        List nodes = (List) nodesByValue.get(key);
+        if (nodes == null) {
+            nodes = new ArrayList(1);
+            nodesByValue.put(key, nodes);
+        }
+        nodes.add(node);
+        pending.add(node);
+    }
+
+    /**
+     * Returns the concept matching the path elements, which follow
+     * the scheme id. If several concepts match, the one highest in
+     * the hierarchy is returned. Null if nothing matches.
+     */
+    Concept find(List elements) throws JAXRException {
+        if (mapped != null)
+            return findMapped(elements);
+        List frontier = Collections.singletonList(root);
+        boolean anyDepth = false;
+        boolean matched = false;
+        for (int i = 0; i < elements.size(); i++) {
+            String element = (String) elements.get(i);
+            if (element.length() == 0) {
+                anyDepth = true;
+                continue;
+            }
+            frontier = step(frontier, element, anyDepth);
+            if (frontier.isEmpty())
+                return null;
+            anyDepth = false;
+            matched = true;
+        }
+        if (!matched)
+            return null;
+        Node best = null;
+        for (int i = 0; i < frontier.size(); i++) {
+            Node node = (Node) frontier.get(i);
+            if ((best == null) || (node.depth < best.depth))
+                best = node;
+        }
+        return (best.concept != null) ? best.concept :
+            flat.getConcept(best.index);
+    }
+
+    private List step(List frontier, String element, boolean anyDepth) {
+        boolean any = element.equals(ANY_PATH);
+        String key = any ? null : JAXRConceptsManager.indexKey(element);
+        List next = new ArrayList();
+        if (!anyDepth) {
+            for (int i = 0; i < frontier.size(); i++) {
+                Node node = (Node) frontier.get(i);
+                if (node.children == null)
+                    continue;
+                if (any) {
+                    next.addAll(node.childList);
+                } else {
+                    Object child = node.children.get(key);
+                    if (child != null)
+                        next.add(child);
+                }
+            }
+            return next;
+        }
+        // any number of levels between the frontier and the match
+        List candidates;
+        if (any) {
+            candidates = new ArrayList();
+            for (int i = 0; i < frontier.size(); i++)
+                collectDescendants((Node) frontier.get(i), candidates);
+            return unique(candidates);
+        }
+        candidates = (List) nodesByValue.get(key);
+        if (candidates == null)
+            return next;
+        IdentityHashMap starts = new IdentityHashMap();
+        for (int i = 0; i < frontier.size(); i++)
+            starts.put(frontier.get(i), Boolean.TRUE);
+        for (int i = 0; i < candidates.size(); i++) {
+            Node candidate = (Node) candidates.get(i);
+            for (Node up = candidate.parent; up != null; up = up.parent) {
+                if (starts.containsKey(up)) {
+                    next.add(candidate);
+                    break;
+                }
+            }
+        }
+        return next;
+    }
+
+    // as find, with the frontier holding slots of the mapped store
+    private Concept findMapped(List elements) throws JAXRException {
+        Slots frontier = new Slots();
+        frontier.add(mapped.size());
+        boolean anyDepth = false;
+        boolean matched = false;
+        for (int i = 0; i < elements.size(); i++) {
+            String element = (String) elements.get(i);
+            if (element.length() == 0) {
+                anyDepth = true;
+                continue;
+            }
+            frontier = stepMapped(frontier, element, anyDepth);
+            if (frontier.size == 0)
+                return null;
+            anyDepth = false;
+            matched = true;
+        }
+        if (!matched)
+            return null;
+        int best = -1;
+        int bestDepth = 0;
+        for (int i = 0; i < frontier.size; i++) {
+            int depth = mapped.getDepth(frontier.slots[i]);
+            if ((best < 0) || (depth < bestDepth)) {
+                best = frontier.slots[i];
+                bestDepth = depth;
+            }
+        }
+        return mapped.getConcept(best);
+    }
+
+    private Slots stepMapped(Slots frontier, String element, boolean anyDepth) {
+        boolean any = element.equals(ANY_PATH);
+        String key = any ? null : JAXRConceptsManager.indexKey(element);
+        Slots next = new Slots();
+        if (!anyDepth) {
+            for (int i = 0; i < frontier.size; i++) {
+                int slot = frontier.slots[i];
+                if (any) {
+                    int count = mapped.getChildCount(slot);
+                    for (int n = 0; n < count; n++) {
+                        int child = mapped.getChild(slot, n);
+                        if (mapped.getValue(child) != null)
+                            next.add(child);
+                    }
+                } else {
+                    int child = mapped.findChild(slot, key);
+                    if (child >= 0)
+                        next.add(child);
+                }
+            }
+            return next;
+        }
+        // any number of levels between the frontier and the match
+        BitSet starts = new BitSet(mapped.size() + 1);
+        for (int i = 0; i < frontier.size; i++)
+            starts.set(frontier.slots[i]);
+        if (any) {
+            BitSet seen = new BitSet(mapped.size());
+            for (int i = 0; i < frontier.size; i++)
+                collectDescendants(frontier.slots[i], seen, next);
+            return next;
+        }
+        int size = mapped.size();
+        for (int position = mapped.lowerBound(MappedTaxonomy.VALUE_ORDER, key);
+                position < size; position++) {
+            int candidate = mapped.getOrdered(MappedTaxonomy.VALUE_ORDER, position);
+            if (!key.equals(mapped.key(MappedTaxonomy.VALUE_ORDER, candidate)))
+                break;
+            // concepts under one without a value are not on any path
+            for (int up = candidate; ; ) {
+                int parent = mapped.getParent(up);
+                int slot = (parent < 0) ? size : parent;
+                if (starts.get(slot)) {
+                    next.add(candidate);
+                    break;
+                }
+                if ((parent < 0) || (mapped.getValue(parent) == null))
+                    break;
+                up = parent;
+            }
+        }
+        return next;
+    }
+
+    private void collectDescendants(int slot, BitSet seen, Slots result) {
+        int count = mapped.getChildCount(slot);
+        for (int n = 0; n < count; n++) {
+            int child = mapped.getChild(slot, n);
+            if ((mapped.getValue(child) == null) || seen.get(child))
+                continue;
+            seen.set(child);
+            result.add(child);
+            collectDescendants(child, seen, result);
+        }
+    }
+
+    private void collectDescendants(Node node, List result) {
+        if (node.childList == null)
+            return;
+        for (int i = 0; i < node.childList.size(); i++) {
+            Node child = (Node) node.childList.get(i);
+            result.add(child);
+            collectDescendants(child, result);
+        }
+    }
+
+    private static List unique(List nodes) {
+        IdentityHashMap seen = new IdentityHashMap();
+        List result = new ArrayList(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Object node = nodes.get(i);
+            if (seen.put(node, Boolean.TRUE) == null)
+                result.add(node);
+        }
+        return result;
+    }
+
+    // a growing list of slots, without boxing them
+    private static final class Slots {
+
+        int[] slots = new int[8];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(slots, 0, grown, 0, size);
+                slots = grown;
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    private static final class Node {
+
+        final Concept concept;
+        // index in the FlatTaxonomy if concept is null
+        final int index;
+        final Node parent;
+        final int depth;
+        HashMap children;
+        ArrayList childList;
+
+        Node(Concept concept, int index, Node parent, int depth) {
+            this.concept = concept;
+            this.index = index;
+            this.parent = parent;
+            this.depth = depth;
+        }
+
+        List childList() {
+            if (childList == null)
+                childList = new ArrayList();
+            return childList;
+        }
+    }
+}
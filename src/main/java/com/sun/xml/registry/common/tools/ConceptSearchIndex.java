@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.tools;
+
+import javax.xml.registry.*;
+import javax.xml.registry.infomodel.*;
+
+import java.util.*;
+
+/**
+ * Name and code index over the concepts of one ClassificationScheme,
+ * for searches such as type-ahead. The upper cased names and codes
+ * (concept values) are kept in arrays, each with an order sorted by
+ * the key, so a pattern with a literal prefix is answered from a
+ * range found by binary search. Patterns starting with '%' scan the
+ * name and code arrays without walking or creating concepts.
+ * <p>
+ * A pattern without wildcards matches names and codes starting with
+ * it, as with the leftmost name match of UDDI, or equal to it for an
+ * exact match. Matches are ranked: an equal name or code first, then
+ * code prefixes, name prefixes, matches at the start of a word in
+ * the name and any other matches; within a rank concepts higher in
+ * the hierarchy come first, then by name.
+ * <p>
+ * An index over a FlatTaxonomy refers to concepts by index; only
+ * the concepts returned get created. An index over a MappedTaxonomy
+ * keeps no arrays: the store has the name and code orders, and names
+ * and codes are read from it while searching.
+ */
+class ConceptSearchIndex {
+
+    static final int EQUAL = 0;
+    static final int CODE_PREFIX = 1;
+    static final int NAME_PREFIX = 2;
+    static final int WORD_START = 3;
+    static final int SUBSTRING = 4;
+
+    private final FlatTaxonomy flat;
+    // set if names, codes and orders are read from the store
+    private final MappedTaxonomy mapped;
+    // per entry, in breadth first order
+    private final String[] names;
+    private final String[] codes;
+    private final int[] depths;
+    // the concept of an entry, or its index in flat
+    private final Concept[] concepts;
+    private final int[] indexes;
+    // entries sorted by name and by code, without null keys
+    private final int[] nameOrder;
+    private final int[] codeOrder;
+
+    ConceptSearchIndex(ClassificationScheme scheme) throws JAXRException {
+        flat = null;
+        mapped = null;
+        ArrayList list = new ArrayList();
+        ArrayList depthList = new ArrayList();
+        LinkedList pending = new LinkedList();
+        addChildren(scheme.getChildrenConcepts(), 1, pending);
+        while (!pending.isEmpty()) {
+            Object[] next = (Object[]) pending.removeFirst();
+            Concept concept = (Concept) next[0];
+            int depth = ((Integer) next[1]).intValue();
+            list.add(concept);
+            depthList.add(next[1]);
+            addChildren(concept.getChildrenConcepts(), depth + 1, pending);
+        }
+        int size = list.size();
+        concepts = (Concept[]) list.toArray(new Concept[size]);
+        indexes = null;
+        names = new String[size];
+        codes = new String[size];
+        depths = new int[size];
+        for (int i = 0; i < size; i++) {
+            InternationalString name = concepts[i].getName();
+            names[i] = upper((name == null) ? null :
+                name.getValue(JAXRConceptsManager.US_LOCALE));
+            codes[i] = upper(concepts[i].getValue());
+            depths[i] = ((Integer) depthList.get(i)).intValue();
+        }
+        nameOrder = sort(names);
+        codeOrder = sort(codes);
+    }
+
+    ConceptSearchIndex(FlatTaxonomy flat) {
+        this.flat = flat;
+        mapped = null;
+        int size = flat.size();
+        concepts = null;
+        indexes = new int[size];
+        names = new String[size];
+        codes = new String[size];
+        depths = new int[size];
+        // breadth first over the slots, the scheme's slot is size()
+        int count = 0;
+        int[] slots = new int[] {size};
+        int depth = 1;
+        while (slots.length > 0) {
+            int next = 0;
+            for (int i = 0; i < slots.length; i++)
+                next += flat.getChildCount(slots[i]);
+            int[] children = new int[next];
+            next = 0;
+            for (int i = 0; i < slots.length; i++) {
+                int childCount = flat.getChildCount(slots[i]);
+                for (int n = 0; n < childCount; n++) {
+                    int index = flat.getChild(slots[i], n);
+                    children[next++] = index;
+                    indexes[count] = index;
+                    names[count] = upper(flat.getName(index));
+                    codes[count] = upper(flat.getValue(index));
+                    depths[count] = depth;
+                    count++;
+                }
+            }
+            slots = children;
+            depth++;
+        }
+        nameOrder = sort(names);
+        codeOrder = sort(codes);
+    }
+
+    ConceptSearchIndex(MappedTaxonomy mapped) {
+        flat = mapped;
+        this.mapped = mapped;
+        names = null;
+        codes = null;
+        depths = null;
+        concepts = null;
+        indexes = null;
+        nameOrder = null;
+        codeOrder = null;
+    }
+
+    private static void addChildren(Collection children, int depth, List pending) {
+        if (children == null)
+            return;
+        Integer boxed = new Integer(depth);
+        Iterator iter = children.iterator();
+        while (iter.hasNext())
+            pending.add(new Object[] {iter.next(), boxed});
+    }
+
+    // upper cased, sharing the string if it is upper case already
+    private static String upper(String str) {
+        if (str == null)
+            return null;
+        String upper = LikePattern.toUpperCase(str);
+        return upper.equals(str) ? str : upper;
+    }
+
+    private static int[] sort(final String[] keys) {
+        ArrayList order = new ArrayList(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null)
+                order.add(new Integer(i));
+        }
+        Collections.sort(order, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                int i1 = ((Integer) o1).intValue();
+                int i2 = ((Integer) o2).intValue();
+                int result = keys[i1].compareTo(keys[i2]);
+                return (result != 0) ? result : i1 - i2;
+            }
+        });
+        int[] result = new int[order.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = ((Integer) order.get(i)).intValue();
+        return result;
+    }
+
+    /**
+     * Adds the matches of the query to the collector.
+     */
+    void search(Query query, int schemeOrder, Collector collector) {
+        int size = size();
+        if (query.prefix.length() == 0) {
+            for (int i = 0; i < size; i++)
+                match(query, i, name(i), code(i), schemeOrder, collector);
+            return;
+        }
+        // entries in both ranges are visited once, from the name range
+        // if their name matches the prefix
+        for (int i = lowerBound(false, query.prefix); i < orderSize(false); i++) {
+            int entry = getOrdered(false, i);
+            String name = name(entry);
+            if ((name == null) || !name.startsWith(query.prefix))
+                break;
+            match(query, entry, name, code(entry), schemeOrder, collector);
+        }
+        for (int i = lowerBound(true, query.prefix); i < orderSize(true); i++) {
+            int entry = getOrdered(true, i);
+            String code = code(entry);
+            if ((code == null) || !code.startsWith(query.prefix))
+                break;
+            String name = name(entry);
+            if ((name == null) || !name.startsWith(query.prefix))
+                match(query, entry, name, code, schemeOrder, collector);
+        }
+    }
+
+    private int size() {
+        return (mapped != null) ? mapped.size() : names.length;
+    }
+
+    // a mapped order has all entries, those without a key last
+    private int orderSize(boolean code) {
+        if (mapped != null)
+            return mapped.size();
+        return code ? codeOrder.length : nameOrder.length;
+    }
+
+    private String name(int entry) {
+        return (mapped != null) ? mapped.key(MappedTaxonomy.NAME_ORDER, entry) :
+            names[entry];
+    }
+
+    private String code(int entry) {
+        return (mapped != null) ? mapped.key(MappedTaxonomy.CODE_ORDER, entry) :
+            codes[entry];
+    }
+
+    private int depth(int entry) {
+        return (mapped != null) ? mapped.getDepth(entry) : depths[entry];
+    }
+
+    private int getOrdered(boolean code, int position) {
+        if (mapped != null)
+            return mapped.getOrdered(code ? MappedTaxonomy.CODE_ORDER :
+                MappedTaxonomy.NAME_ORDER, position);
+        return code ? codeOrder[position] : nameOrder[position];
+    }
+
+    private int lowerBound(boolean code, String key) {
+        if (mapped != null)
+            return mapped.lowerBound(code ? MappedTaxonomy.CODE_ORDER :
+                MappedTaxonomy.NAME_ORDER, key);
+        int[] order = code ? codeOrder : nameOrder;
+        String[] keys = code ? codes : names;
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[order[mid]].compareTo(key) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void match(Query query, int entry, String name, String code,
+        int schemeOrder, Collector collector) {
+        int rank = Math.min(query.rank(name, false), query.rank(code, true));
+        if (rank <= SUBSTRING)
+            collector.add(new Match(this, entry, schemeOrder, rank, name,
+                depth(entry)));
+    }
+
+    Concept getConcept(int entry) throws JAXRException {
+        if (mapped != null)
+            return mapped.getConcept(entry);
+        return (concepts != null) ? concepts[entry] :
+            flat.getConcept(indexes[entry]);
+    }
+
+    /**
+     * A name pattern prepared for searching: '%' and '_' are the UDDI
+     * wildcards, '\' escapes them.
+     */
+    static final class Query {
+
+        final LikePattern like;
+        // the literal text before the first wildcard, upper cased
+        final String prefix;
+        // the first literal text of the pattern, upper cased
+        final String literal;
+        final boolean wildcards;
+
+        Query(String pattern, boolean exact) {
+            StringBuffer prefixBuffer = new StringBuffer();
+            StringBuffer literalBuffer = new StringBuffer();
+            boolean inPrefix = true;
+            boolean inLiteral = true;
+            boolean escaped = false;
+            boolean hasWildcards = false;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (!escaped && c == LikePattern.DEFAULT_ESCAPE) {
+                    escaped = true;
+                    continue;
+                }
+                if (!escaped && (c == '%' || c == '_')) {
+                    hasWildcards = true;
+                    inPrefix = false;
+                    // leading '%' do not end the first literal text
+                    if (literalBuffer.length() > 0 || c == '_')
+                        inLiteral = false;
+                    continue;
+                }
+                escaped = false;
+                if (inPrefix)
+                    prefixBuffer.append(Character.toUpperCase(c));
+                if (inLiteral)
+                    literalBuffer.append(Character.toUpperCase(c));
+            }
+            prefix = prefixBuffer.toString();
+            literal = literalBuffer.toString();
+            wildcards = hasWildcards;
+            // leftmost match unless exact
+            like = LikePattern.compile(exact ? pattern : pattern + "%");
+        }
+
+        // the rank of a match of the key, greater than SUBSTRING if the
+        // key does not match
+        int rank(String key, boolean code) {
+            if ((key == null) || !like.matchesUpperCase(key))
+                return SUBSTRING + 1;
+            if (!wildcards && key.length() == prefix.length())
+                return EQUAL;
+            if (prefix.length() > 0)
+                return code ? CODE_PREFIX : NAME_PREFIX;
+            if (code || literal.length() == 0)
+                return SUBSTRING;
+            int at = key.indexOf(literal);
+            while (at > 0 && Character.isLetterOrDigit(key.charAt(at - 1)))
+                at = key.indexOf(literal, at + 1);
+            return (at >= 0) ? WORD_START : SUBSTRING;
+        }
+    }
+
+    static final class Match {
+
+        final ConceptSearchIndex index;
+        final int entry;
+        final int schemeOrder;
+        final int rank;
+        // upper cased, read once for a mapped index
+        final String name;
+        final int depth;
+
+        Match(ConceptSearchIndex index, int entry, int schemeOrder, int rank,
+            String name, int depth) {
+            this.index = index;
+            this.entry = entry;
+            this.schemeOrder = schemeOrder;
+            this.rank = rank;
+            this.name = name;
+            this.depth = depth;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Concept getConcept() throws JAXRException {
+            return index.getConcept(entry);
+        }
+    }
+
+    /**
+     * Keeps the best matches of one search, at most limit of them, in a
+     * heap with the worst match on top. The same concept matched by
+     * several patterns is kept once.
+     */
+    static final class Collector {
+
+        private final int limit;
+        private final Comparator order;
+        private final PriorityQueue heap;
+        // "index@entry" of the matches in the heap
+        private final HashMap kept = new HashMap();
+
+        Collector(int limit, final int sortByName) {
+            this.limit = limit;
+            order = new Comparator() {
+                public int compare(Object o1, Object o2) {
+                    Match m1 = (Match) o1;
+                    Match m2 = (Match) o2;
+                    int result;
+                    if (sortByName != 0) {
+                        result = sortByName * compareNames(m1, m2);
+                        if (result != 0)
+                            return result;
+                    }
+                    result = m1.rank - m2.rank;
+                    if (result == 0)
+                        result = m1.depth - m2.depth;
+                    if (result == 0 && sortByName == 0)
+                        result = compareNames(m1, m2);
+                    if (result == 0)
+                        result = m1.schemeOrder - m2.schemeOrder;
+                    if (result == 0)
+                        result = m1.entry - m2.entry;
+                    return result;
+                }
+            };
+            heap = new PriorityQueue(11, Collections.reverseOrder(order));
+        }
+
+        private static int compareNames(Match m1, Match m2) {
+            String n1 = m1.getName();
+            String n2 = m2.getName();
+            if (n1 == null)
+                return (n2 == null) ? 0 : 1;
+            return (n2 == null) ? -1 : n1.compareTo(n2);
+        }
+
+        void add(Match match) {
+            if (isFull() && order.compare(match, heap.peek()) >= 0)
+                return;
+            Object key = match.schemeOrder + "@" + match.entry;
+            Match old = (Match) kept.get(key);
+            if (old != null) {
+                if (order.compare(match, old) >= 0)
+                    return;
+                heap.remove(old);
+                kept.remove(key);
+            }
+            if (isFull()) {
+                Match worst = (Match) heap.poll();
+                kept.remove(worst.schemeOrder + "@" + worst.entry);
+            }
+            heap.add(match);
+            kept.put(key, match);
+        }
+
+        private boolean isFull() {
+            return (limit > 0) && (heap.size() >= limit);
+        }
+
+        /**
+         * The matches kept, best first.
+         */
+        List getMatches() {
+            ArrayList matches = new ArrayList(heap);
+            Collections.sort(matches, order);
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.tools;
+
+import javax.xml.registry.*;
+import javax.xml.registry.infomodel.*;
+
+import com.sun.xml.registry.uddi.infomodel.*;
+import com.sun.xml.registry.common.util.*;
+
+import java.util.*;
+
+/**
+ * The concepts of one predefined ClassificationScheme kept in flat
+ * arrays. Only the scheme and its top level concepts are objects up
+ * front; the children of a concept are created the first time they
+ * are asked for (see ConceptImpl.ChildrenSource), so the heap used by
+ * a large taxonomy grows with the part of it that is actually used.
+ * <p>
+ * Concept i has its parent in parents[i], -1 for a child of the
+ * scheme, and its id, name and code as indexes into the string table
+ * (-1 for null). The children of i are childList[childStart[i]] up to
+ * childList[childStart[i + 1]]; slot size() holds the scheme's children.
+ * <p>
+ * The scheme and the concepts are shared by all connections using the
+ * taxonomy file, so they are marked immutable once created (see
+ * RegistryObjectImpl.setShared).
+ * <p>
+ * Concepts are created from the accessors getParent, getId, getName,
+ * getValue, getFlags, getChildCount and getChild, which MappedTaxonomy
+ * overrides to read a memory-mapped file instead of the arrays.
+ */
+class FlatTaxonomy {
+
+    static final int PREDEFINED = 1;
+
+    private final ClassificationSchemeImpl scheme;
+    private final String[] strings;
+    private final int[] parents;
+    private final int[] ids;
+    private final int[] names;
+    private final int[] codes;
+    private final byte[] flags;
+    private final int[] childStart;
+    private final int[] childList;
+    // concepts created so far, guarded by this
+    private final ConceptImpl[] concepts;
+    // upper cased id to Integer index, built on the first lookup
+    private HashMap idIndex;
+
+    FlatTaxonomy(ClassificationSchemeImpl scheme, String[] strings,
+        int[] parents, int[] ids, int[] names, int[] codes, byte[] flags)
+        throws JAXRException {
+        this.scheme = scheme;
+        this.strings = strings;
+        this.parents = parents;
+        this.ids = ids;
+        this.names = names;
+        this.codes = codes;
+        this.flags = flags;
+        int size = parents.length;
+        concepts = new ConceptImpl[size];
+
+        // count the children per slot, then fill them in index order,
+        // which keeps the order of the file
+        childStart = new int[size + 2];
+        for (int i = 0; i < size; i++)
+            childStart[slot(parents[i]) + 1]++;
+        for (int i = 0; i <= size; i++)
+            childStart[i + 1] += childStart[i];
+        childList = new int[size];
+        int[] next = new int[size + 1];
+        System.arraycopy(childStart, 0, next, 0, size + 1);
+        for (int i = 0; i < size; i++)
+            childList[next[slot(parents[i])]++] = i;
+        createTopConcepts();
+    }
+
+    /**
+     * For subclasses keeping the concepts elsewhere, they call
+     * createTopConcepts once they can be read.
+     */
+    FlatTaxonomy(ClassificationSchemeImpl scheme, int size) {
+        this.scheme = scheme;
+        strings = null;
+        parents = null;
+        ids = null;
+        names = null;
+        codes = null;
+        flags = null;
+        childStart = null;
+        childList = null;
+        concepts = new ConceptImpl[size];
+    }
+
+    final void createTopConcepts() throws JAXRException {
+        synchronized (this) {
+            Iterator iter = createChildren(size()).iterator();
+            while (iter.hasNext())
+                scheme.addChildConcept((Concept) iter.next());
+        }
+        scheme.setShared();
+    }
+
+    ClassificationSchemeImpl getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Number of concepts in the scheme, created or not.
+     */
+    int size() {
+        return concepts.length;
+    }
+
+    /**
+     * The parent of a concept, -1 for a child of the scheme.
+     */
+    int getParent(int index) {
+        return parents[index];
+    }
+
+    String getId(int index) {
+        return string(ids[index]);
+    }
+
+    int getChildCount(int slot) {
+        return childStart[slot + 1] - childStart[slot];
+    }
+
+    int getChild(int slot, int n) {
+        return childList[childStart[slot] + n];
+    }
+
+    String getValue(int index) {
+        return string(codes[index]);
+    }
+
+    String getName(int index) {
+        return string(names[index]);
+    }
+
+    int getFlags(int index) {
+        return flags[index];
+    }
+
+    /**
+     * Returns the concept at index, creating it and its ancestors
+     * with all their siblings if needed.
+     */
+    synchronized ConceptImpl getConcept(int index) throws JAXRException {
+        if (concepts[index] == null)
+            getConcept(getParent(index)).getChildrenConcepts();
+        return concepts[index];
+    }
+
+    /**
+     * Returns the concept with the id, ignoring case, or null.
+     */
+    ConceptImpl getConcept(String id) throws JAXRException {
+        int index = indexOf(id);
+        return (index < 0) ? null : getConcept(index);
+    }
+
+    /**
+     * The index of the concept with the id, ignoring case, or -1.
+     */
+    synchronized int indexOf(String id) {
+        if (idIndex == null) {
+            idIndex = new HashMap(parents.length * 4 / 3 + 1);
+            for (int i = 0; i < parents.length; i++) {
+                if (ids[i] < 0)
+                    continue;
+                String key = JAXRConceptsManager.indexKey(strings[ids[i]]);
+                // first concept with an id wins, as with the tree walk
+                if (!idIndex.containsKey(key))
+                    idIndex.put(key, new Integer(i));
+            }
+        }
+        Integer index = (Integer) idIndex.get(JAXRConceptsManager.indexKey(id));
+        return (index == null) ? -1 : index.intValue();
+    }
+
+    /**
+     * Estimated heap size of the arrays and the strings they refer
+     * to, without the concepts created later.
+     */
+    long getEstimatedSize() {
+        long size = parents.length * 33L + 16 * 9;
+        for (int i = 0; i < parents.length; i++)
+            size += stringSize(ids[i]) + stringSize(names[i]) + stringSize(codes[i]);
+        return size;
+    }
+
+    private long stringSize(int index) {
+        return (index < 0) ? 0 : 40 + 2 * strings[index].length();
+    }
+
+    // must be called holding the lock of this
+    private List createChildren(int slot) throws JAXRException {
+        int count = getChildCount(slot);
+        List children = new ArrayList(count);
+        for (int n = 0; n < count; n++) {
+            int index = getChild(slot, n);
+            ConceptImpl concept = new ConceptImpl();
+            concept.setKey(new KeyImpl(getId(index)));
+            concept.setIsRetrieved(true);
+            concept.setIsLoaded(true);
+            concept.setName(new InternationalStringImpl(
+                JAXRConceptsManager.US_LOCALE, getName(index)));
+            concept.setValue(getValue(index));
+            concept.setPredefined((getFlags(index) & PREDEFINED) != 0);
+            if (getChildCount(index) > 0)
+                concept.setChildrenSource(new Children(index));
+            concept.setShared();
+            concepts[index] = concept;
+            children.add(concept);
+        }
+        JAXRMetrics.add(JAXRMetrics.TAXONOMY_CONCEPTS_MATERIALIZED, count);
+        return children;
+    }
+
+    private int slot(int parent) {
+        return (parent < 0) ? size() : parent;
+    }
+
+    private String string(int index) {
+        return (index < 0) ? null : strings[index];
+    }
+
+    /**
+     * Creates the children of one concept on first use.
+     */
+    private final class Children implements ConceptImpl.ChildrenSource {
+
+        private final int index;
+
+        Children(int index) {
+            this.index = index;
+        }
+
+        public void loadChildren(ConceptImpl concept) throws JAXRException {
+            synchronized (FlatTaxonomy.this) {
+                // another thread may have been first
+                if (concept.getChildrenSource() == this)
+                    concept.setLoadedChildren(createChildren(index));
+            }
+        }
+
+        public int getChildCount(ConceptImpl concept) {
+            return FlatTaxonomy.this.getChildCount(index);
+        }
+    }
+}
@@ -62,6 +62,19 @@ import java.security.PrivilegedAction;
 import java.security.PrivilegedExceptionAction;
 import java.security.PrivilegedActionException;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 
 //needs major rework
 public class JAXRConceptsManager {
@@ -81,47 +94,216 @@ public class JAXRConceptsManager {
     static PredefinedConcepts iso;
     static PredefinedConcepts unsp;
     static PredefinedConcepts user;
-    static Collection definedSchemes;
-    ArrayList fileList = new ArrayList();
-    HashMap dMap = new HashMap();
+    Collection definedSchemes;
+    ArrayList fileList;
+    // file name plus index to ClassificationScheme, in load order
+    LinkedHashMap dMap = new LinkedHashMap();
     String jaxrFile;
     String naicsFile;
     String isoFile;
     String predefinesDTD;
     HashMap idMap;
-    ConnectionImpl connection;
-    private static JAXRConceptsManager instance;
+    // upper cased id to ClassificationScheme and to Concept, built
+    // once the taxonomies are loaded
+    HashMap schemeIndex = new HashMap();
+    HashMap conceptIndex = new HashMap();
+    // SchemeName entries of the defined schemes, in scheme order
+    ArrayList schemeNames = new ArrayList();
+    // upper cased scheme id to ConceptPathIndex
+    private final HashMap pathIndexes = new HashMap();
+    // upper cased scheme id to ConceptSearchIndex
+    private final HashMap searchIndexes = new HashMap();
+    // FlatTaxonomies backing defined schemes, in scheme order; their
+    // concepts are looked up there instead of in conceptIndex
+    ArrayList flatTaxonomies = new ArrayList();
+    
+    // Taxonomy files are parsed once per JVM. loadedFiles maps a file
+    // name to the CompletableFuture of the List of FlatTaxonomies read
+    // from it, instances maps the List of files of a connection (bundled
+    // files followed by the user defined ones) to the CompletableFuture
+    // of the manager serving that set. Both keys include the store
+    // directory if user defined files are memory-mapped. Failed loads are removed so the
+    // next connection tries again. Both are guarded by loadLock.
+    private static final Object loadLock = new Object();
+    private static final HashMap loadedFiles = new HashMap();
+    private static final HashMap instances = new HashMap();
+    // reads the files in parallel, guarded by loadLock
+    private static ThreadPoolExecutor loader;
+    private static final long LOADER_KEEP_ALIVE_SECONDS = 10;
+    // false if a file failed to load
+    private boolean complete = true;
+    // directory of the MappedTaxonomy stores of user defined files,
+    // null to keep them on the heap
+    private final String storeDirectory;
     
     //for jaxb
-    private JAXBContext jc;
+    private static JAXBContext jc;
     private ObjectFactory objFactory;
-    private Unmarshaller u;
+    private static Unmarshaller u;
     
     private static String taxonomyPath =
             "resources/";
     
+    // taxonomy files shipped in taxonomyPath, each has a
+    // TaxonomySnapshot made by the build
+    static final String[] BUNDLED_TAXONOMIES = {
+        "naics.xml", "iso3166.xml", "unspsc.xml", "jaxrconcepts.xml"
+    };
+    
     public static JAXRConceptsManager getInstance(ConnectionImpl connection) {
+        return (JAXRConceptsManager) getInstanceAsync(connection).join();
+    }
+    
+    /**
+     * Returns a CompletableFuture of the manager of the connection's
+     * taxonomy files, starting the load unless it is running or done
+     * already, so a client can do other work, e.g. authenticate, while
+     * the files are read. Each file is read on its own thread with its
+     * own parser and the results are merged in file order. The future
+     * completes normally; if a file fails to load the manager has the
+     * schemes of the other files and is not kept.
+     */
+    public static CompletableFuture getInstanceAsync(ConnectionImpl connection) {
         
-        try {
-            if (instance == null)
-                instance = new JAXRConceptsManager(connection);
-            //maybe not do here but in constructor
-            instance.loadTaxonomies();
-            definedSchemes = instance.taxonomies2TaxonomyTree();
-        } catch (JAXRException ex) {
-            System.out.println("Failed to load taxonomies");
-            ex.printStackTrace();
+        final ArrayList files = getTaxonomyFiles(connection.getUserDefinedTaxonomy());
+        String storeDirectory = connection.getTaxonomyStoreDirectory();
+        final Object key = (storeDirectory == null) ? (Object) files :
+            Arrays.asList(new Object[] {files, storeDirectory});
+        synchronized (loadLock) {
+            CompletableFuture instance = (CompletableFuture) instances.get(key);
+            if (instance != null)
+                return instance;
+            final JAXRConceptsManager manager =
+                new JAXRConceptsManager(files, storeDirectory);
+            final CompletableFuture[] loads = new CompletableFuture[files.size()];
+            for (int i = 0; i < loads.length; i++)
+                loads[i] = manager.getFileLoad((String) files.get(i));
+            final CompletableFuture result = CompletableFuture.allOf(loads).handle(
+                    new BiFunction() {
+                public Object apply(Object ignored, Object failure) {
+                    return manager.merge(loads);
+                }
+            });
+            instances.put(key, result);
+            result.thenAccept(new Consumer() {
+                public void accept(Object loaded) {
+                    if (!manager.complete)
+                        forget(instances, key, result);
+                }
+            });
+            return result;
+        }
+    }
+    
+    // the running or finished load of one file, must hold loadLock
+    private CompletableFuture getFileLoad(final String filename) {
+        final Object key = isMapped(filename) ?
+            Arrays.asList(new Object[] {filename, storeDirectory}) :
+            (Object) filename;
+        CompletableFuture load = (CompletableFuture) loadedFiles.get(key);
+        if (load != null)
+            return load;
+        final CompletableFuture result = CompletableFuture.supplyAsync(
+                new Supplier() {
+            public Object get() {
+                try {
+                    return loadTaxonomyFile(filename);
+                } catch (JAXRException e) {
+                    throw new CompletionException(e);
+                }
+            }
+        }, getLoader());
+        loadedFiles.put(key, result);
+        result.whenComplete(new BiConsumer() {
+            public void accept(Object schemes, Object failure) {
+                // missing files are looked for again, as before
+                if ((schemes == null) || (failure != null))
+                    forget(loadedFiles, key, result);
+            }
+        });
+        return result;
+    }
+    
+    private static void forget(Map map, Object key, Object value) {
+        synchronized (loadLock) {
+            if (map.get(key) == value)
+                map.remove(key);
         }
-        return instance;
     }
     
-    private JAXRConceptsManager(ConnectionImpl connection){
-        this.connection = connection;
+    // must hold loadLock
+    private static Executor getLoader() {
+        if (loader == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            loader = new ThreadPoolExecutor(threads, threads,
+                    LOADER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue(), new ThreadFactory() {
+                private int count;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JAXR-taxonomy-loader-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            loader.allowCoreThreadTimeOut(true);
+        }
+        return loader;
+    }
+    
+    /**
+     * Adds the schemes of the file loads to dMap in file order, whatever
+     * order the loads finished in, and builds the indexes.
+     */
+    JAXRConceptsManager merge(CompletableFuture[] loads) {
+        
+        for (int i = 0; i < loads.length; i++) {
+            String filename = (String) fileList.get(i);
+            List schemes;
+            try {
+                schemes = (List) loads[i].join();
+            } catch (CompletionException e) {
+                complete = false;
+                logger.log(Level.WARNING, ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Cannot_load_taxonomy_file_") + filename, e.getCause());
+                continue;
+            } catch (CancellationException e) {
+                complete = false;
+                continue;
+            }
+            if (schemes == null)
+                continue;
+            for (int j = 0; j < schemes.size(); j++) {
+                Object scheme = schemes.get(j);
+                if (scheme instanceof FlatTaxonomy) {
+                    flatTaxonomies.add(scheme);
+                    scheme = ((FlatTaxonomy) scheme).getScheme();
+                }
+                dMap.put(filename + j, scheme);
+            }
+        }
+        definedSchemes = taxonomies2TaxonomyTree();
+        buildIndexes();
+        return this;
+    }
+    
+    private JAXRConceptsManager(ArrayList fileList, String storeDirectory){
+        this.fileList = fileList;
+        this.storeDirectory = storeDirectory;
         idMap = new HashMap();
         initJAXBObjectFactory();
     }
     
     private void initJAXBObjectFactory(){
+        // create an ObjectFactory instance.
+        // if the JAXBContext had been created with mutiple pacakge names,
+        // we would have to explicitly use the correct package name when
+        // creating the ObjectFactory.
+        if (objFactory == null)
+            objFactory = new ObjectFactory();
+    }
+    
+    // the JAXBContext is only needed for files without a snapshot,
+    // create it on first use; callers hold loadLock
+    private static Unmarshaller getUnmarshaller() {
         // create a JAXBContext
         try {
             if (jc == null)
@@ -130,17 +312,41 @@ public class JAXRConceptsManager {
             System.out.println("Exiting unable to initial JAXB context");
             //System.exit(1);
         }
-        // create an ObjectFactory instance.
-        // if the JAXBContext had been created with mutiple pacakge names,
-        // we would have to explicitly use the correct package name when
-        // creating the ObjectFactory.
-        if (objFactory == null)
-            objFactory = new ObjectFactory();
         try {
-            u = jc.createUnmarshaller();
+            if ((u == null) && (jc != null))
+                u = jc.createUnmarshaller();
         } catch (JAXBException jbe){
             //need to log
         }
+        return u;
+    }
+    
+    /**
+     * Returns the bundled taxonomy files followed by the user defined
+     * ones, each file once. The user defined files are given as a
+     * "|" separated list, spaces are ignored.
+     */
+    static ArrayList getTaxonomyFiles(String userDefined) {
+        ArrayList files = new ArrayList();
+        for (int i = 0; i < BUNDLED_TAXONOMIES.length; i++)
+            files.add(taxonomyPath + BUNDLED_TAXONOMIES[i]);
+        if (userDefined != null) {
+            // remove spaces
+            StringTokenizer spaceTokenizer =
+                    new StringTokenizer(userDefined, " ");
+            StringBuffer udBuffer = new StringBuffer();
+            while (spaceTokenizer.hasMoreElements()) {
+                udBuffer.append(spaceTokenizer.nextToken());
+            }
+            StringTokenizer tokenizer =
+                    new StringTokenizer(udBuffer.toString(), "|");
+            while (tokenizer.hasMoreElements()) {
+                String filename = tokenizer.nextToken();
+                if (!files.contains(filename))
+                    files.add(filename);
+            }
+        }
+        return files;
     }
     
     
@@ -170,6 +376,93 @@ public class JAXRConceptsManager {
         return matches;
     }
     
+    /**
+     * Returns true if the scheme is one of the predefined or user
+     * defined schemes of this manager.
+     */
+    public boolean isDefinedScheme(ClassificationScheme scheme)
+    throws JAXRException {
+        return (scheme != null) && (scheme.getKey() != null) &&
+            (getClassificationSchemeById(scheme.getKey().getId()) != null);
+    }
+    
+    /**
+     * Finds the concepts of a defined scheme, or of all of them if
+     * scheme is null, whose name or code matches one of the name
+     * patterns, without walking the concept trees. A pattern without
+     * wildcards matches names and codes starting with it. The best
+     * matches come first, see ConceptSearchIndex; at most maxRows of
+     * them are returned unless maxRows is 0. The find qualifiers
+     * exactNameMatch, sortByNameAsc and sortByNameDesc are honored.
+     */
+    public List findConcepts(ClassificationScheme scheme,
+            Collection findQualifiers, Collection namePatterns, int maxRows)
+            throws JAXRException {
+        
+        boolean exact = false;
+        int sortByName = 0;
+        if (findQualifiers != null) {
+            exact = findQualifiers.contains(FindQualifier.EXACT_NAME_MATCH);
+            if (findQualifiers.contains(FindQualifier.SORT_BY_NAME_ASC))
+                sortByName = 1;
+            else if (findQualifiers.contains(FindQualifier.SORT_BY_NAME_DESC))
+                sortByName = -1;
+        }
+        List schemes = new ArrayList();
+        if (scheme == null) {
+            schemes.addAll(definedSchemes);
+        } else {
+            ClassificationScheme defined =
+                getClassificationSchemeById(scheme.getKey().getId());
+            if (defined != null)
+                schemes.add(defined);
+        }
+        ConceptSearchIndex.Collector collector =
+            new ConceptSearchIndex.Collector(maxRows, sortByName);
+        if (namePatterns != null) {
+            Iterator piter = namePatterns.iterator();
+            while (piter.hasNext()) {
+                Object pattern = piter.next();
+                if (pattern instanceof LocalizedString)
+                    pattern = ((LocalizedString) pattern).getValue();
+                else if (pattern instanceof InternationalString)
+                    pattern = ((InternationalString) pattern).getValue();
+                if (pattern == null)
+                    continue;
+                ConceptSearchIndex.Query query =
+                    new ConceptSearchIndex.Query(pattern.toString(), exact);
+                for (int i = 0; i < schemes.size(); i++)
+                    getSearchIndex((ClassificationScheme) schemes.get(i)).search(
+                        query, i, collector);
+            }
+        }
+        List matches = collector.getMatches();
+        List concepts = new ArrayList(matches.size());
+        for (int i = 0; i < matches.size(); i++)
+            concepts.add(((ConceptSearchIndex.Match) matches.get(i)).getConcept());
+        return concepts;
+    }
+    
+    // search indexes are built per scheme on first use, those of
+    // mapped schemes search the store
+    private ConceptSearchIndex getSearchIndex(ClassificationScheme scheme)
+    throws JAXRException {
+        String key = indexKey(scheme.getKey().getId());
+        synchronized (searchIndexes) {
+            ConceptSearchIndex index = (ConceptSearchIndex) searchIndexes.get(key);
+            if (index == null) {
+                FlatTaxonomy flat = getFlatTaxonomy(scheme);
+                if (flat instanceof MappedTaxonomy)
+                    index = new ConceptSearchIndex((MappedTaxonomy) flat);
+                else
+                    index = (flat != null) ? new ConceptSearchIndex(flat) :
+                        new ConceptSearchIndex(scheme);
+                searchIndexes.put(key, index);
+            }
+            return index;
+        }
+    }
+    
     public Collection getChildConcepts(ClassificationScheme scheme) throws JAXRException{
         if (scheme != null)
             return scheme.getChildrenConcepts();
@@ -468,73 +761,28 @@ public class JAXRConceptsManager {
     Collection getClassificationSchemeByName(Collection findQualifiers, String name)
     throws JAXRException {
         
-        ClassificationScheme jscheme = null;
         Collection allMatches = new ArrayList();
-        Iterator iter = definedSchemes.iterator();
-        while (iter.hasNext()) {
-            jscheme = (ClassificationScheme)iter.next();
-            String pname = jscheme.getName().getValue(US_LOCALE);
-            
-            String uname = name.toUpperCase();
+        String uname = LikePattern.toUpperCase(name);
+        // without a '%' the name may occur anywhere in the scheme name
+        LikePattern pattern = LikePattern.compile(
+                (name.indexOf("%") == -1) ? "%" + name + "%" : name);
+        for (int i = 0; i < schemeNames.size(); i++) {
+            SchemeName entry = (SchemeName) schemeNames.get(i);
+            String pname = entry.name;
             
+            // a scheme name containing or contained in the name
+            // is taken as the only match
             if ( (name.indexOf(pname) != -1) ||
                     (pname.indexOf(name) != -1) ||
-                    (pname.equalsIgnoreCase(name)) ){
-                allMatches.add(jscheme);
-                return allMatches;
-            }
-            
-            if ( (uname.indexOf(pname) != -1) ||
+                    (uname.indexOf(pname) != -1) ||
                     (pname.indexOf(uname) != -1) ||
-                    (pname.equalsIgnoreCase(uname)) ){
-                allMatches.add(jscheme);
+                    (entry.upperName.equals(uname)) ){
+                allMatches.add(entry.scheme);
                 return allMatches;
             }
             
-            
-            
-            char escapeChar = '\\';
-            if (name.indexOf("%") == -1) {
-                String mname = name + "%";
-                if (matchPattern(mname, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                    continue;
-                }
-                mname = "%" + name;
-                if (matchPattern(mname, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                    continue;
-                }
-                mname = "%" + name + "%";
-                if (matchPattern(mname, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                    continue;
-                }
-                mname = uname + "%";
-                if (matchPattern(mname, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                    continue;
-                }
-                mname = "%" + uname;
-                if (matchPattern(mname, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                    continue;
-                }
-                mname = "%" + uname + "%";
-                if (matchPattern(mname, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                    continue;
-                }
-            } else {
-                if (matchPattern(name, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                    continue;
-                }
-                if (matchPattern(uname, pname, escapeChar)){
-                    allMatches.add(jscheme);
-                }
-            }
-            
+            if (pattern.matchesUpperCase(entry.upperName))
+                allMatches.add(entry.scheme);
         }
         return allMatches;
     }
@@ -542,15 +790,9 @@ public class JAXRConceptsManager {
     public ClassificationScheme getClassificationSchemeById(String id)
     throws JAXRException {
         
-        Iterator iter = definedSchemes.iterator();
-        while (iter.hasNext()) {
-            ClassificationScheme scheme = (ClassificationScheme)iter.next();
-            String cid = scheme.getKey().getId();
-            if ( cid.equalsIgnoreCase(id) ){
-                return scheme;
-            }
-        }
-        return null;
+        if (id == null)
+            return null;
+        return (ClassificationScheme) schemeIndex.get(indexKey(id));
     }
     
     Concept getConceptById(Collection childConcepts, String id)
@@ -578,26 +820,78 @@ public class JAXRConceptsManager {
         logger.finest("Id is " + id);
         if (id == null)
             return null;
-        Iterator iter = definedSchemes.iterator();
-        while (iter.hasNext()) {
-            ClassificationScheme scheme = (ClassificationScheme)iter.next();
-            Collection children = scheme.getChildrenConcepts();
-            if (children != null) {
-                Iterator citer = children.iterator();
-                while (citer.hasNext()) {
-                    Concept concept = (Concept) citer.next();
-                    if (concept.getKey().getId().equalsIgnoreCase(id))
-                        return concept;
-                    else {
-                        Collection conceptChildren = concept.getChildrenConcepts();
-                        Concept found = null;
-                        if (conceptChildren != null)
-                            found = getConceptById(conceptChildren, id);
-                        if (found != null)
-                            return found;
-                    }
+        Concept concept = (Concept) conceptIndex.get(indexKey(id));
+        for (int i = 0; concept == null && i < flatTaxonomies.size(); i++)
+            concept = ((FlatTaxonomy) flatTaxonomies.get(i)).getConcept(id);
+        return concept;
+    }
+    
+    /**
+     * Indexes the defined schemes and all their concepts by id. Ids are
+     * compared ignoring case; if two objects share an id the one found
+     * first in scheme order wins, as with the former linear search.
+     * Schemes backed by a FlatTaxonomy are not walked, it indexes its
+     * concepts itself so they need not be created.
+     */
+    void buildIndexes() {
+        
+        HashMap schemes = new HashMap();
+        HashMap concepts = new HashMap();
+        ArrayList names = new ArrayList();
+        ArrayList flats = new ArrayList();
+        try {
+            Iterator iter = definedSchemes.iterator();
+            while (iter.hasNext()) {
+                ClassificationScheme scheme = (ClassificationScheme)iter.next();
+                String key = indexKey(scheme.getKey().getId());
+                if (!schemes.containsKey(key))
+                    schemes.put(key, scheme);
+                String name = scheme.getName().getValue(US_LOCALE);
+                if (name != null)
+                    names.add(new SchemeName(scheme, name));
+                FlatTaxonomy flat = getFlatTaxonomy(scheme);
+                if (flat != null) {
+                    flats.add(flat);
+                    continue;
                 }
+                Collection children = scheme.getChildrenConcepts();
+                if (children != null)
+                    indexConcepts(concepts, children);
             }
+        } catch (JAXRException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+        }
+        schemeIndex = schemes;
+        conceptIndex = concepts;
+        schemeNames = names;
+        flatTaxonomies = flats;
+    }
+    
+    private void indexConcepts(HashMap concepts, Collection children)
+    throws JAXRException {
+        
+        Iterator iter = children.iterator();
+        while (iter.hasNext()) {
+            Concept concept = (Concept)iter.next();
+            String key = indexKey(concept.getKey().getId());
+            if (!concepts.containsKey(key))
+                concepts.put(key, concept);
+            Collection grandChildren = concept.getChildrenConcepts();
+            if (grandChildren != null)
+                indexConcepts(concepts, grandChildren);
+        }
+    }
+    
+    static String indexKey(String id) {
+        return id.toUpperCase(Locale.ENGLISH);
+    }
+    
+    // the FlatTaxonomy backing the scheme, null if it is a plain tree
+    private FlatTaxonomy getFlatTaxonomy(ClassificationScheme scheme) {
+        for (int i = 0; i < flatTaxonomies.size(); i++) {
+            FlatTaxonomy flat = (FlatTaxonomy) flatTaxonomies.get(i);
+            if (flat.getScheme() == scheme)
+                return flat;
         }
         return null;
     }
@@ -643,65 +937,44 @@ public class JAXRConceptsManager {
         return false;
     }
     
+    /**
+     * Resolves "/schemeId/value/value..." through the path index of the
+     * scheme. "*" matches any concept on one level, "//" any number of
+     * levels.
+     */
     Concept getConceptsByPath2(String xpath)
     throws JAXRException {
-        String anyPath = "*"; //any path element in the path
-        String anyDescendant = "//";
-        String delim = "/";
-        boolean escaped = false;
-        String  tok = null;
-        ArrayList tokens = new ArrayList();
-        if (xpath != null) {
-            StringTokenizer st = new StringTokenizer(xpath, delim, true);
-            //Parse string into a Collection of tokens since we will need to peek forward as we
-            //scan tokens
-            int k = 1;
-            while (st.hasMoreTokens()) {
-                tok = st.nextToken();
-                tokens.add(tok);
-            }
-        } else throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Path_is_null"));
-        Concept concept = null;
-        int i = 0;
-        int numtoks = tokens.size();
-        if (i < numtoks) {
-            
-            String delimOne = (String)tokens.get(i);
-            i++;
-            if (delimOne.equals("/")) {
-                //continue - malformed XPATH Request
-                String classificationId =  (String)tokens.get(i);
-                i++;
-                ClassificationScheme scheme =
-                        getClassificationSchemeById(classificationId);
-                if (scheme == null)
-                    return null;
-                logger.finest("scheme.getName " + scheme.getName().getValue());
-                Collection children = scheme.getChildrenConcepts();
-                while (i < numtoks) {
-                    String delimn = (String)tokens.get(i);
-                    i++;
-                    if (delimn.equals("/")) {
-                        if (i < numtoks) {
-                            String value = (String)tokens.get(i);
-                            i++;
-                            if (children != null) {
-                                concept = getConceptByValue(children , value);
-                                if (concept != null) {
-                                    logger.finest("FirstConcept with value" + concept.getValue());
-                                    children = concept.getChildrenConcepts();
-                                    if (children == null) {
-                                        logger.finest("children are null for " + concept.getValue());
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                return concept;
+        if (xpath == null)
+            throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Path_is_null"));
+        if (!xpath.startsWith("/"))
+            return null;
+        List elements = new ArrayList(Arrays.asList(xpath.substring(1).split("/", -1)));
+        String classificationId = (String)elements.remove(0);
+        ClassificationScheme scheme =
+                getClassificationSchemeById(classificationId);
+        if (scheme == null)
+            return null;
+        return getPathIndex(scheme).find(elements);
+    }
+    
+    // path indexes are built per scheme on first use, those of
+    // mapped schemes walk the store
+    private ConceptPathIndex getPathIndex(ClassificationScheme scheme)
+    throws JAXRException {
+        String key = indexKey(scheme.getKey().getId());
+        synchronized (pathIndexes) {
+            ConceptPathIndex index = (ConceptPathIndex) pathIndexes.get(key);
+            if (index == null) {
+                FlatTaxonomy flat = getFlatTaxonomy(scheme);
+                if (flat instanceof MappedTaxonomy)
+                    index = new ConceptPathIndex((MappedTaxonomy) flat);
+                else
+                    index = (flat != null) ? new ConceptPathIndex(flat) :
+                        new ConceptPathIndex(scheme);
+                pathIndexes.put(key, index);
             }
+            return index;
         }
-        return null;
     }
     
     Concept getConceptByValue(Collection childConcepts, String value)
@@ -886,178 +1159,7 @@ public class JAXRConceptsManager {
      * @see
      */
     boolean matchPattern(String patternStr, String str, char escapeChar) {
-        boolean matched = false;
-        String escapeCharStr = String.valueOf(escapeChar);
-        String wildCards = "_%";
-        String delims = wildCards + escapeCharStr;
-        boolean escaped = false;
-        int     index = 0;
-        String  tok = null;
-        
-        // can remove this for logging and rely on log level
-        boolean debug = false;
-        
-        try {
-            
-            if (str != null) {
-                StringTokenizer st = new StringTokenizer(patternStr, delims, true);
-                //Parse string into a Collection of tokens since we will need to peek forward as we
-                //scan tokens
-                ArrayList tokens = new ArrayList();
-                int k = 1;
-                while (st.hasMoreTokens()) {
-                    tok = st.nextToken();
-                    if (debug) {
-                        logger.finest(k++ + " matchPattern Token=" + tok);
-                    }
-                    tokens.add(tok);
-                }
-                matched = true;
-                
-                //Iterate over tokens list and match each token with str
-                int numTokens = tokens.size();
-                for (int i=0; i<numTokens; i++) {
-                    tok = (String)tokens.get(i);
-                    // Token can be a delimeter or actual token
-                    if (tok.equals(escapeCharStr) && (!escaped)) {
-                        //Remember that the next character in patterStr must be treated literally
-                        escaped = true;
-                    } else if (tok.equals("%") && (! escaped)) {
-                        if (i == (numTokens - 1) ) {
-                            // wildcard is last character in pattern,
-                            // match entire string.
-                            index = str.length();
-                        } else if (i != numTokens-1) {    //There are more tokens. If not then we have a match
-                            //Now scan forward
-                            int _cnt = 0; //count of '_' delimeters encountered
-                            ++i;
-                            for (; i<numTokens; i++) {
-                                tok = (String)tokens.get(i);
-                                if (tok.equals(escapeCharStr) && (!escaped)) {
-                                    //Remember that the next character in patterStr must be treated literally
-                                    escaped = true;
-                                } else if (tok.equals("%") && (! escaped)) {
-                                    //% followed by % is same as %
-                                } else if (tok.equals("_") && (! escaped)) {
-                                    ++_cnt;
-                                } else {
-                                    //This is the nextNonDelimTok
-                                    int oldIndex = index;
-                                    
-                                    if (i == (numTokens -1)) {
-                                        
-                                        // Not a general purpose fix for
-                                        // wildcard matching bug.
-                                        // At least handle case when
-                                        // only one wildcard in pattern
-                                        // that has a group of characters
-                                        // trailing it.
-                                        if (str.endsWith(tok)) {
-                                            index = str.length() - tok.length();
-                                        } else {
-                                            matched = false;
-                                            if (debug) {
-                                                logger.finest("no matched5 for token: '" + tok + "'");
-                                            }
-                                        }
-                                    } else {
-                                        index = str.indexOf(tok, index);
-                                    }
-                                    
-                                    if (index < 0) {
-                                        matched = false;
-                                        if (debug) {
-                                            logger.finest("no matched1 for token: '" + tok + "'");
-                                        }
-                                    } else {
-                                        //Make sure that we have _cnt charecters between old index and new index
-                                        if (index - oldIndex >= _cnt) {
-                                            index += tok.length();
-                                            if (debug) {
-                                                logger.finest("matched1: " + str.substring(0, index));
-                                            }
-                                        } else {
-                                            matched = false;
-                                            if (debug) {
-                                                logger.finest("no matched 2 for token: '" + tok + "'");
-                                            }
-                                        }
-                                    }
-                                    escaped = false;
-                                    break;
-                                }
-                            }
-                        }
-                    } else if (tok.equals("_") && (!escaped)) {
-                        index++;
-                        if (debug) {
-                            logger.finest("matched2: " + str.substring(0, index));
-                        }
-                    } else {
-                        //Compare token read with corresponding string
-                        int tokLen = tok.length();
-                        
-                        if (debug) {
-                            logger.finest(index + " " + tokLen);
-                        }
-                        if (index + tokLen <= str.length()) {
-                            String  subStr = null;
-                            
-                            try {
-                                subStr = str.substring(index, index + tokLen);
-                            } catch (StringIndexOutOfBoundsException e) {
-                                matched = false;
-                                break;
-                            }
-                            
-                            if (!subStr.equalsIgnoreCase(tok)) {
-                                matched = false;
-                                if (debug) {
-                                    logger.finest("no matched3 for token: '" + tok + "'");
-                                }
-                                
-                                break;
-                            } else {
-                                index = index + tok.length();
-                                if (debug) {
-                                    logger.finest("matched3: " + str.substring(0, index));
-                                }
-                            }
-                        } else {
-                            matched = false;
-                            if (debug) {
-                                logger.finest("no matched4 for token: '" + tok + "'");
-                            }
-                            
-                            break;
-                        }
-                        escaped = false;
-                    }
-                }
-            }
-            if (matched && index != str.length()) {
-                if (debug) {
-                    logger.finest("no match5(remainder): " + str.substring(index, str.length()));
-                }
-                matched = false;
-            }
-            if (debug) {
-                logger.finest("JAXR:matchPattern patternStr = \'" +
-                        patternStr + "\' str = \'" +
-                        str + "\' matched = " + matched);
-            }
-        } catch (StringIndexOutOfBoundsException e) {
-            matched = false;
-            if (debug) {
-                e.printStackTrace();
-                logger.finest("HANDLED OUTOFBOUNDS JAXR:matchPattern patternStr = \'" +
-                        patternStr + "\' str = \'" +
-                        str + "\' matched = " + matched);
-                
-            }
-        } finally {
-            return matched;
-        }
+        return LikePattern.compile(patternStr, escapeChar).matches(str);
     }
     
     Collection doFindClassificationSchemes(Collection findQualifiers, Collection namepatterns)
@@ -1074,114 +1176,266 @@ public class JAXRConceptsManager {
         return matchingSchemes;
     }
     
-    void loadTaxonomies() throws JAXRException {
+    /**
+     * Reads one taxonomy file into FlatTaxonomies, from its snapshot if
+     * it is a bundled one with a snapshot, else with the streaming XML
+     * loader. Returns null if the file cannot be found.
+     */
+    List loadTaxonomyFile(String filename) throws JAXRException {
         
-        String naics = taxonomyPath + "naics.xml";
-        String iso3166 = taxonomyPath + "iso3166.xml";
-        String unspsc = taxonomyPath + "unspsc.xml";
-        String jaxrconcepts = taxonomyPath + "jaxrconcepts.xml";
+        long start = System.currentTimeMillis();
+        List schemes = null;
+        if (isBundled(filename))
+            schemes = readSnapshot(filename);
+        else if (isMapped(filename))
+            schemes = mapTaxonomyFile(filename);
+        if (schemes == null)
+            schemes = streamTaxonomyFile(filename);
+        if (schemes == null)
+            return null;
         
-        try {
-            fileList.add(naics);
-            fileList.add(iso3166);
-            fileList.add(unspsc);
-            fileList.add(jaxrconcepts);
-            
-            String userDefined = connection.getUserDefinedTaxonomy();
-            if (userDefined != null) {
-                
-                // parse filenames and add to list
-                if (logger.isLoggable(Level.FINEST)) {
-                    logger.finest("Parsing user defined taxonomy filenames");
-                }
-                
-                // remove spaces
-                String space = " ";
-                StringTokenizer spaceTokenizer =
-                        new StringTokenizer(userDefined, space);
-                StringBuffer udBuffer = new StringBuffer();
-                while (spaceTokenizer.hasMoreElements()) {
-                    udBuffer.append(spaceTokenizer.nextToken());
-                }
-                userDefined = udBuffer.toString();
-                logger.finest(userDefined);
-                StringTokenizer tokenizer = new StringTokenizer(userDefined, "|");
-                while (tokenizer.hasMoreElements()) {
-                    final String filename = tokenizer.nextToken();
-                    if (!fileList.contains(filename)) {
-                        if (logger.isLoggable(Level.FINEST)) {
-                            logger.finest("Adding filename to list to load: " + filename);
-                        }
-                        fileList.add(filename);
-                    }
+        long concepts = 0;
+        long bytes = 0;
+        for (int i = 0; i < schemes.size(); i++) {
+            if (schemes.get(i) instanceof FlatTaxonomy) {
+                // counted without creating the concepts
+                FlatTaxonomy flat = (FlatTaxonomy) schemes.get(i);
+                bytes += flat.getScheme().getEstimatedSize() +
+                        flat.getEstimatedSize();
+                concepts += flat.size();
+                continue;
+            }
+            ClassificationSchemeImpl scheme =
+                    (ClassificationSchemeImpl) schemes.get(i);
+            bytes += scheme.getEstimatedSize();
+            Iterator citer = scheme.getDescendantConcepts().iterator();
+            while (citer.hasNext()) {
+                bytes += ((ConceptImpl) citer.next()).getEstimatedSize();
+                concepts++;
+            }
+        }
+        JAXRMetrics.increment(JAXRMetrics.TAXONOMY_FILES_LOADED);
+        JAXRMetrics.add(JAXRMetrics.TAXONOMY_CONCEPTS, concepts);
+        JAXRMetrics.add(JAXRMetrics.TAXONOMY_ESTIMATED_BYTES, bytes);
+        JAXRMetrics.add(JAXRMetrics.TAXONOMY_LOAD_MILLIS,
+                System.currentTimeMillis() - start);
+        return schemes;
+    }
+    
+    // user defined files are mapped if a store directory is set
+    private boolean isMapped(String filename) {
+        return (storeDirectory != null) && !isBundled(filename);
+    }
+    
+    /**
+     * Maps the store of a user defined taxonomy file, writing it from
+     * the XML file first if there is none or the file changed since.
+     * Returns the heap form read from the XML if the store cannot be
+     * written, and null if the file is not a local file or missing.
+     */
+    List mapTaxonomyFile(final String filename) throws JAXRException {
+        
+        final File source = new File(filename);
+        final File store = new File(storeDirectory,
+                MappedTaxonomy.getStoreName(source));
+        final boolean[] local = new boolean[1];
+        List mapped = (List) AccessController.doPrivileged(
+                new PrivilegedAction() {
+            public Object run() {
+                local[0] = source.isFile();
+                if (!local[0])
+                    return null;
+                try {
+                    return MappedTaxonomy.read(store, source);
+                } catch (Exception e) {
+                    // written again below
+                    logger.log(Level.FINE, e.getMessage(), e);
+                    return null;
                 }
             }
-            
-            Iterator iter = fileList.iterator();
-            while(iter.hasNext()) {
-                final String filename = (String)iter.next();
-                if (logger.isLoggable(Level.FINEST)) {
-                    logger.finest("Filename is " + filename);
+        });
+        if (mapped != null) {
+            JAXRMetrics.increment(JAXRMetrics.TAXONOMY_STORES_MAPPED);
+            return mapped;
+        }
+        if (!local[0])
+            return null;
+        
+        final List schemes = streamTaxonomyFile(filename);
+        if (schemes == null)
+            return null;
+        mapped = (List) AccessController.doPrivileged(
+                new PrivilegedAction() {
+            public Object run() {
+                try {
+                    store.getAbsoluteFile().getParentFile().mkdirs();
+                    MappedTaxonomy.write(schemes, store, source);
+                    return MappedTaxonomy.read(store, source);
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Cannot_write_taxonomy_store_") + store, e);
+                    return null;
                 }
-                InputStream is =   (InputStream)
+            }
+        });
+        if (mapped == null)
+            return schemes;
+        JAXRMetrics.increment(JAXRMetrics.TAXONOMY_STORES_BUILT);
+        return mapped;
+    }
+    
+    static boolean isBundled(String filename) {
+        for (int i = 0; i < BUNDLED_TAXONOMIES.length; i++) {
+            if (filename.equals(taxonomyPath + BUNDLED_TAXONOMIES[i]))
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Reads the snapshot the build made of a bundled taxonomy file,
+     * null if there is none or it cannot be read.
+     */
+    List readSnapshot(String filename) {
+        final String snapshot = TaxonomySnapshot.getSnapshotName(filename);
+        InputStream is = (InputStream)
+        AccessController.doPrivileged(
+                new PrivilegedAction() {
+            public Object run() {
+                return this.getClass().getResourceAsStream(snapshot);
+            }
+        });
+        if (is == null)
+            return null;
+        try {
+            try {
+                List schemes = TaxonomySnapshot.read(is);
+                JAXRMetrics.increment(JAXRMetrics.TAXONOMY_SNAPSHOTS_LOADED);
+                return schemes;
+            } finally {
+                is.close();
+            }
+        } catch (Exception e) {
+            // fall back to the XML file
+            logger.log(Level.FINE, e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * Parses a bundled taxonomy file, e.g. "naics.xml", ignoring any
+     * snapshot. Used by the build to write the snapshots.
+     */
+    static List parseBundledTaxonomy(String name) throws JAXRException {
+        synchronized (loadLock) {
+            return new JAXRConceptsManager(new ArrayList(), null).parseTaxonomyFile(
+                    taxonomyPath + name);
+        }
+    }
+    
+    /**
+     * Reads one taxonomy XML file with StreamingTaxonomyLoader, without
+     * unmarshalling it first. Returns null if the file cannot be found.
+     */
+    List streamTaxonomyFile(String filename) throws JAXRException {
+        
+        InputStream is = openTaxonomyFile(filename);
+        if (is == null)
+            return null;
+        try {
+            try {
+                List taxonomies = StreamingTaxonomyLoader.read(is);
+                logger.finest("Got Scheme Success" + filename + " ");
+                return taxonomies;
+            } finally {
+                is.close();
+            }
+        } catch (JAXRException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Cannot_initialize:_") + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Parses one taxonomy XML file and converts it to ClassificationSchemes.
+     * Returns null if the file cannot be found.
+     */
+    List parseTaxonomyFile(final String filename) throws JAXRException {
+        
+        try {
+            InputStream is = openTaxonomyFile(filename);
+            if (is == null)
+                return null;
+            PredefinedConcepts predefines;
+            try {
+                predefines = (PredefinedConcepts)getUnmarshaller().unmarshal( is );
+            } finally {
+                is.close();
+            }
+            List schemes = jaxrSchemes2TaxonomyTree(
+                    predefines.getJAXRClassificationScheme());
+            logger.finest("Got Scheme Success" + filename + " ");
+            return schemes;
+        } catch (Exception e) {
+            // the caller gets the cause with the exception
+            logger.log(Level.FINE, e.getMessage(), e);
+            throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Cannot_initialize:_") + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Opens a taxonomy file as a resource or else from the file system,
+     * null if it is neither.
+     */
+    private InputStream openTaxonomyFile(final String filename) {
+        
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("Filename is " + filename);
+        }
+        InputStream is =   (InputStream)
+        AccessController.doPrivileged(
+                new PrivilegedAction() {
+            public Object run() {
+                return this.getClass().getResourceAsStream(filename);
+            }
+        });
+        if (is == null) {
+            logger.finest("Could not load input stream. Try file lookup.");
+            try {
+                is = (InputStream)
                 AccessController.doPrivileged(
                         new PrivilegedAction() {
                     public Object run() {
-                        return this.getClass().getResourceAsStream(filename);
-                    }
-                });
-                if (is == null) {
-                    logger.finest("Could not load input stream. Try file lookup.");
-                    try {
-                        is = (InputStream)
-                        AccessController.doPrivileged(
-                                new PrivilegedAction() {
-                            public Object run() {
-                                try {
-                                    return new FileInputStream(filename);
-                                } catch (FileNotFoundException fnfe) {
-                                    fnfe.printStackTrace();
-                                }
-                                return null;
-                            }
-                        });
-                    } catch (Throwable t) {
-                        
-                        // cannot load files in some cases
-                        logger.log(Level.FINEST, t.getMessage(), t);
-                    }
-                }
-                if (is == null) {
-                    logger.warning(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Could_not_load_file:_") + filename);
-                } else {
-                    
-                    PredefinedConcepts predefines =
-                            (PredefinedConcepts)u.unmarshal( is );
-                    List schemes =
-                            predefines.getJAXRClassificationScheme();
-                    if (schemes.size() > 0) {
-                        for (int i = 0; i < schemes.size(); i++) {
-                            JAXRClassificationScheme scheme =
-                                    (JAXRClassificationScheme)schemes.get(i);
-                            dMap.put(filename + i, scheme);
-                            logger.finest("Got Scheme Success" + filename + " ");
+                        try {
+                            return new FileInputStream(filename);
+                        } catch (FileNotFoundException fnfe) {
+                            // warned about below
+                            logger.log(Level.FINEST, fnfe.getMessage(), fnfe);
                         }
-                        logger.finest("Got Scheme Success");
-                        
+                        return null;
                     }
-                }
+                });
+            } catch (Throwable t) {
+                
+                // cannot load files in some cases
+                logger.log(Level.FINEST, t.getMessage(), t);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Cannot_initialize:_") + e.getMessage(), e);
         }
+        if (is == null) {
+            logger.warning(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("JAXRConceptsManager:Could_not_load_file:_") + filename);
+        }
+        return is;
     }
     
     
+    //the schemes of all loaded files, in file order
+    Collection taxonomies2TaxonomyTree() {
+        return new ArrayList(dMap.values());
+    }
+    
     //let transfor the readin files to ClassificationSchemes and Concepts
-    Collection taxonomies2TaxonomyTree() throws JAXRException {
-        Collection taxonomies = dMap.values();
-        Collection schemes = new ArrayList();
+    List jaxrSchemes2TaxonomyTree(Collection taxonomies) throws JAXRException {
+        List schemes = new ArrayList();
         Iterator titer = taxonomies.iterator();
         
         while (titer.hasNext()){
@@ -1271,4 +1525,21 @@ public class JAXRConceptsManager {
         return jaxrConcepts;
     }
     
+    /**
+     * Name of a scheme together with its upper cased form, so name
+     * patterns are matched without converting the names each time.
+     */
+    static final class SchemeName {
+        
+        final ClassificationScheme scheme;
+        final String name;
+        final String upperName;
+        
+        SchemeName(ClassificationScheme scheme, String name) {
+            this.scheme = scheme;
+            this.name = name;
+            this.upperName = LikePattern.toUpperCase(name);
+        }
+    }
+    
 }
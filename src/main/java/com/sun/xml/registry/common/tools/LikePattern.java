@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.tools;
+
+import java.util.*;
+
+/**
+ * A compiled SQL LIKE pattern as used in UDDI name patterns: '%'
+ * matches any number of characters, '_' exactly one, and the escape
+ * character makes the following character literal. Matching ignores
+ * case. Compiled patterns are immutable and kept in a small LRU cache,
+ * so a pattern used again is not parsed again.
+ */
+class LikePattern {
+
+    static final char DEFAULT_ESCAPE = '\\';
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map cache = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // the pattern split at '%', each segment upper cased with
+    // the positions of '_' marked in the matching wildcards array
+    private final char[][] segments;
+    private final boolean[][] wildcards;
+    private final boolean leadingPercent;
+    private final boolean trailingPercent;
+
+    static LikePattern compile(String pattern) {
+        return compile(pattern, DEFAULT_ESCAPE);
+    }
+
+    static LikePattern compile(String pattern, char escapeChar) {
+        Key key = new Key(pattern, escapeChar);
+        synchronized (cache) {
+            LikePattern compiled = (LikePattern) cache.get(key);
+            if (compiled == null) {
+                compiled = new LikePattern(pattern, escapeChar);
+                cache.put(key, compiled);
+            }
+            return compiled;
+        }
+    }
+
+    private LikePattern(String pattern, char escapeChar) {
+        List segmentList = new ArrayList();
+        List wildcardList = new ArrayList();
+        StringBuffer segment = new StringBuffer();
+        StringBuffer wild = new StringBuffer();
+        boolean escaped = false;
+        boolean leading = false;
+        boolean trailing = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            trailing = false;
+            if (escaped) {
+                segment.append(Character.toUpperCase(c));
+                wild.append('0');
+                escaped = false;
+            } else if (c == escapeChar) {
+                escaped = true;
+            } else if (c == '%') {
+                if (i == 0)
+                    leading = true;
+                if (segment.length() > 0)
+                    addSegment(segmentList, wildcardList, segment, wild);
+                trailing = true;
+            } else if (c == '_') {
+                segment.append('_');
+                wild.append('1');
+            } else {
+                segment.append(Character.toUpperCase(c));
+                wild.append('0');
+            }
+        }
+        if (!trailing)
+            addSegment(segmentList, wildcardList, segment, wild);
+        segments = (char[][]) segmentList.toArray(new char[segmentList.size()][]);
+        wildcards = (boolean[][]) wildcardList.toArray(new boolean[wildcardList.size()][]);
+        leadingPercent = leading;
+        trailingPercent = trailing;
+    }
+
+    private static void addSegment(List segmentList, List wildcardList,
+        StringBuffer segment, StringBuffer wild) {
+        char[] chars = new char[segment.length()];
+        segment.getChars(0, chars.length, chars, 0);
+        boolean[] wildcard = new boolean[chars.length];
+        for (int i = 0; i < wildcard.length; i++)
+            wildcard[i] = wild.charAt(i) == '1';
+        segmentList.add(chars);
+        wildcardList.add(wildcard);
+        segment.setLength(0);
+        wild.setLength(0);
+    }
+
+    boolean matches(String str) {
+        if (str == null)
+            return false;
+        return matchesUpperCase(toUpperCase(str));
+    }
+
+    /**
+     * Upper cases character by character, unlike String.toUpperCase
+     * the result has the length of the argument and does not depend
+     * on the default locale.
+     */
+    static String toUpperCase(String str) {
+        char[] chars = str.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = Character.toUpperCase(chars[i]);
+        return new String(chars);
+    }
+
+    /**
+     * Matches a string that was upper cased with toUpperCase, e.g.
+     * a precomputed index entry.
+     */
+    boolean matchesUpperCase(String str) {
+        int last = segments.length - 1;
+        if (!leadingPercent && !trailingPercent && last == 0) {
+            return (str.length() == segments[0].length) &&
+                matchesAt(str, 0, 0);
+        }
+        int pos = 0;
+        int first = 0;
+        if (!leadingPercent) {
+            if (!matchesAt(str, 0, 0))
+                return false;
+            pos = segments[0].length;
+            first = 1;
+        }
+        int end = str.length();
+        if (!trailingPercent && last >= first) {
+            end -= segments[last].length;
+            if (end < pos || !matchesAt(str, last, end))
+                return false;
+            last--;
+        }
+        // the segments between two '%', leftmost occurrence each
+        for (int i = first; i <= last; i++) {
+            int found = indexOf(str, i, pos, end);
+            if (found < 0)
+                return false;
+            pos = found + segments[i].length;
+        }
+        return true;
+    }
+
+    private int indexOf(String str, int segment, int from, int end) {
+        int max = end - segments[segment].length;
+        for (int i = from; i <= max; i++) {
+            if (matchesAt(str, segment, i))
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(String str, int segment, int offset) {
+        char[] chars = segments[segment];
+        boolean[] wildcard = wildcards[segment];
+        if (offset + chars.length > str.length())
+            return false;
+        for (int i = 0; i < chars.length; i++) {
+            if (!wildcard[i] && chars[i] != str.charAt(offset + i))
+                return false;
+        }
+        return true;
+    }
+
+    // the pattern and its escape character, which changes the
+    // meaning of the pattern
+    private static final class Key {
+
+        private final String pattern;
+        private final char escapeChar;
+
+        Key(String pattern, char escapeChar) {
+            this.pattern = pattern;
+            this.escapeChar = escapeChar;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return (escapeChar == other.escapeChar) &&
+                pattern.equals(other.pattern);
+        }
+
+        public int hashCode() {
+            return pattern.hashCode() * 31 + escapeChar;
+        }
+    }
+}
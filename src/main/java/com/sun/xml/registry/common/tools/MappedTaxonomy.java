@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.tools;
+
+import javax.xml.registry.*;
+import javax.xml.registry.infomodel.*;
+
+import com.sun.xml.registry.uddi.infomodel.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * A FlatTaxonomy read from a memory-mapped store file instead of heap
+ * arrays, for user defined taxonomies too large to keep on the heap.
+ * The store is written from the XML file the first time it is loaded
+ * and mapped read-only on later starts, as long as the length and
+ * modification time of the XML file are unchanged. Concepts are
+ * created from the mapped records when they are first needed, so the
+ * heap holds the concepts in use and little else.
+ * <p>
+ * Layout, big endian: magic and version, the length and modification
+ * time of the XML file, the offset of the string pool and the number
+ * of schemes, then per scheme the pool offsets of its id, name and
+ * description, its number of concepts and the offset of its section.
+ * A section has the concept records, five ints each: parent, pool
+ * offsets of id, name and code, and flags, as in FlatTaxonomy; then
+ * the child start and child list arrays of FlatTaxonomy, the child
+ * list again with the children of each concept sorted by upper cased
+ * value, and the concept indexes sorted by upper cased id, value, name
+ * and code. Null keys go last in each order. The pool holds each
+ * distinct string once, as its length in bytes and its UTF-8 bytes.
+ * A pool offset of -1 stands for null.
+ * <p>
+ * The sorted arrays let ConceptPathIndex and ConceptSearchIndex search
+ * the mapped data with binary searches, the same way indexOf looks up
+ * ids, instead of copying it to the heap.
+ */
+class MappedTaxonomy extends FlatTaxonomy {
+
+    static final String SUFFIX = ".store";
+
+    private static final int MAGIC = 0x4A41524D;
+    private static final int VERSION = 2;
+    private static final int RECORD_INTS = 5;
+    private static final int HEADER_BYTES = 32;
+    private static final int SCHEME_BYTES = 20;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // the orders of the concepts kept in the store
+    static final int ID_ORDER = 0;
+    static final int VALUE_ORDER = 1;
+    static final int NAME_ORDER = 2;
+    static final int CODE_ORDER = 3;
+    private static final int ORDERS = 4;
+
+    private final IntBuffer records;
+    private final IntBuffer childStart;
+    private final IntBuffer childList;
+    private final IntBuffer childrenByValue;
+    private final IntBuffer[] orders = new IntBuffer[ORDERS];
+    private final ByteBuffer pool;
+
+    private MappedTaxonomy(ClassificationSchemeImpl scheme, int size,
+        ByteBuffer section, ByteBuffer pool) throws JAXRException {
+        super(scheme, size);
+        records = slice(section, 0, size * RECORD_INTS);
+        childStart = slice(section, size * RECORD_INTS, size + 2);
+        childList = slice(section, size * (RECORD_INTS + 1) + 2, size);
+        childrenByValue = slice(section, size * (RECORD_INTS + 2) + 2, size);
+        for (int i = 0; i < ORDERS; i++)
+            orders[i] = slice(section, size * (RECORD_INTS + 3 + i) + 2, size);
+        this.pool = pool;
+        createTopConcepts();
+    }
+
+    private static IntBuffer slice(ByteBuffer section, int offset, int length) {
+        ByteBuffer buffer = section.duplicate();
+        buffer.position(offset * 4);
+        buffer.limit((offset + length) * 4);
+        return buffer.slice().asIntBuffer();
+    }
+
+    /**
+     * Returns the name of the store of a taxonomy file, unique for its
+     * path so files of the same name may share a store directory.
+     */
+    static String getStoreName(File source) {
+        String name = source.getName();
+        if (name.endsWith(".xml"))
+            name = name.substring(0, name.length() - 4);
+        return name + "-" +
+            Integer.toHexString(source.getAbsolutePath().hashCode()) + SUFFIX;
+    }
+
+    /**
+     * Maps the store of the source file and returns its schemes, one
+     * MappedTaxonomy each, or null if there is no store or it was
+     * written from another version of the source.
+     */
+    static List read(File store, File source) throws JAXRException, IOException {
+        if (!store.isFile())
+            return null;
+        ByteBuffer buffer;
+        RandomAccessFile file = new RandomAccessFile(store, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+                return null;
+            // the mapping stays valid once the file is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+        if ((buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != VERSION) ||
+            (buffer.getLong(8) != source.length()) ||
+            (buffer.getLong(16) != source.lastModified()))
+            return null;
+        int poolOffset = buffer.getInt(24);
+        int schemeCount = buffer.getInt(28);
+        ByteBuffer pool = buffer.duplicate();
+        pool.position(poolOffset);
+        pool = pool.slice();
+        List taxonomies = new ArrayList(schemeCount);
+        for (int i = 0; i < schemeCount; i++) {
+            int entry = HEADER_BYTES + i * SCHEME_BYTES;
+            ClassificationSchemeImpl scheme = new ClassificationSchemeImpl(
+                new KeyImpl(string(pool, buffer.getInt(entry))));
+            scheme.setName(new InternationalStringImpl(
+                JAXRConceptsManager.US_LOCALE, string(pool, buffer.getInt(entry + 4))));
+            scheme.setDescription(new InternationalStringImpl(
+                JAXRConceptsManager.US_LOCALE, string(pool, buffer.getInt(entry + 8))));
+            scheme.setPredefined(true);
+            ByteBuffer section = buffer.duplicate();
+            section.position(buffer.getInt(entry + 16));
+            taxonomies.add(new MappedTaxonomy(scheme, buffer.getInt(entry + 12),
+                section.slice(), pool));
+        }
+        return taxonomies;
+    }
+
+    /**
+     * Writes the store of the FlatTaxonomies read from the source file.
+     * The store is written to a temporary file first and then renamed,
+     * so a reader never sees a partial store.
+     */
+    static void write(List taxonomies, File store, File source)
+        throws JAXRException, IOException {
+        // pool offsets of the distinct strings, in pool order
+        LinkedHashMap offsets = new LinkedHashMap();
+        int[] poolSize = new int[1];
+        int[][] schemes = new int[taxonomies.size()][];
+        int offset = HEADER_BYTES + taxonomies.size() * SCHEME_BYTES;
+        for (int i = 0; i < taxonomies.size(); i++) {
+            FlatTaxonomy flat = (FlatTaxonomy) taxonomies.get(i);
+            ClassificationSchemeImpl scheme = flat.getScheme();
+            schemes[i] = new int[] {
+                intern(scheme.getKey().getId(), offsets, poolSize),
+                intern(getValue(scheme.getName()), offsets, poolSize),
+                intern(getValue(scheme.getDescription()), offsets, poolSize),
+                flat.size(), offset};
+            for (int j = 0; j < flat.size(); j++) {
+                intern(flat.getId(j), offsets, poolSize);
+                intern(flat.getName(j), offsets, poolSize);
+                intern(flat.getValue(j), offsets, poolSize);
+            }
+            offset += (flat.size() * (RECORD_INTS + 3 + ORDERS) + 2) * 4;
+        }
+
+        File temp = File.createTempFile(store.getName(), ".tmp",
+            store.getAbsoluteFile().getParentFile());
+        try {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 65536));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(source.length());
+                out.writeLong(source.lastModified());
+                out.writeInt(offset);
+                out.writeInt(schemes.length);
+                for (int i = 0; i < schemes.length; i++) {
+                    for (int j = 0; j < schemes[i].length; j++)
+                        out.writeInt(schemes[i][j]);
+                }
+                for (int i = 0; i < taxonomies.size(); i++)
+                    writeSection((FlatTaxonomy) taxonomies.get(i), offsets, out);
+                Iterator iter = offsets.keySet().iterator();
+                while (iter.hasNext()) {
+                    byte[] bytes = ((String) iter.next()).getBytes(UTF8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            } finally {
+                out.close();
+            }
+            if (store.exists())
+                store.delete();
+            if (!temp.renameTo(store))
+                throw new IOException("Cannot rename " + temp + " to " + store);
+        } finally {
+            if (temp.exists())
+                temp.delete();
+        }
+    }
+
+    private static void writeSection(FlatTaxonomy flat, Map offsets,
+        DataOutputStream out) throws IOException {
+        int size = flat.size();
+        for (int i = 0; i < size; i++) {
+            out.writeInt(flat.getParent(i));
+            out.writeInt(offset(flat.getId(i), offsets));
+            out.writeInt(offset(flat.getName(i), offsets));
+            out.writeInt(offset(flat.getValue(i), offsets));
+            out.writeInt(flat.getFlags(i));
+        }
+        int start = 0;
+        for (int slot = 0; slot <= size; slot++) {
+            out.writeInt(start);
+            start += flat.getChildCount(slot);
+        }
+        out.writeInt(start);
+        for (int slot = 0; slot <= size; slot++) {
+            int count = flat.getChildCount(slot);
+            for (int n = 0; n < count; n++)
+                out.writeInt(flat.getChild(slot, n));
+        }
+        String[] values = keys(flat, VALUE_ORDER);
+        for (int slot = 0; slot <= size; slot++) {
+            int count = flat.getChildCount(slot);
+            Integer[] children = new Integer[count];
+            for (int n = 0; n < count; n++)
+                children[n] = new Integer(flat.getChild(slot, n));
+            writeOrder(children, values, out);
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            Integer[] order = new Integer[size];
+            for (int j = 0; j < size; j++)
+                order[j] = new Integer(j);
+            writeOrder(order, (i == VALUE_ORDER) ? values : keys(flat, i), out);
+        }
+    }
+
+    // the key of each concept in the order
+    private static String[] keys(FlatTaxonomy flat, int order) {
+        String[] keys = new String[flat.size()];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = key(flat, order, i);
+        return keys;
+    }
+
+    private static String key(FlatTaxonomy flat, int order, int index) {
+        switch (order) {
+            case ID_ORDER:
+                return indexKey(flat.getId(index));
+            case VALUE_ORDER:
+                return indexKey(flat.getValue(index));
+            case NAME_ORDER:
+                return upper(flat.getName(index));
+            default:
+                return upper(flat.getValue(index));
+        }
+    }
+
+    private static String indexKey(String str) {
+        return (str == null) ? null : JAXRConceptsManager.indexKey(str);
+    }
+
+    // as ConceptSearchIndex upper cases names and codes
+    private static String upper(String str) {
+        return (str == null) ? null : LikePattern.toUpperCase(str);
+    }
+
+    // sorts the concept indexes by key, equal keys in index order so
+    // the first concept in the file is found first
+    private static void writeOrder(Integer[] order, final String[] keys,
+        DataOutputStream out) throws IOException {
+        Arrays.sort(order, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                int i1 = ((Integer) o1).intValue();
+                int i2 = ((Integer) o2).intValue();
+                int result = compareKeys(keys[i1], keys[i2]);
+                return (result != 0) ? result : i1 - i2;
+            }
+        });
+        for (int i = 0; i < order.length; i++)
+            out.writeInt(order[i].intValue());
+    }
+
+    private static int compareKeys(String key1, String key2) {
+        if (key1 == null)
+            return (key2 == null) ? 0 : 1;
+        return (key2 == null) ? -1 : key1.compareTo(key2);
+    }
+
+    private static String getValue(InternationalString string)
+        throws JAXRException {
+        return (string == null) ? null :
+            string.getValue(JAXRConceptsManager.US_LOCALE);
+    }
+
+    private static int intern(String string, Map offsets, int[] poolSize) {
+        if (string == null)
+            return -1;
+        Integer offset = (Integer) offsets.get(string);
+        if (offset == null) {
+            offset = new Integer(poolSize[0]);
+            offsets.put(string, offset);
+            poolSize[0] += 4 + string.getBytes(UTF8).length;
+        }
+        return offset.intValue();
+    }
+
+    private static int offset(String string, Map offsets) {
+        return (string == null) ? -1 : ((Integer) offsets.get(string)).intValue();
+    }
+
+    private static String string(ByteBuffer pool, int offset) {
+        if (offset < 0)
+            return null;
+        byte[] bytes = new byte[pool.getInt(offset)];
+        ByteBuffer buffer = pool.duplicate();
+        buffer.position(offset + 4);
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    int getParent(int index) {
+        return records.get(index * RECORD_INTS);
+    }
+
+    String getId(int index) {
+        return string(pool, records.get(index * RECORD_INTS + 1));
+    }
+
+    String getName(int index) {
+        return string(pool, records.get(index * RECORD_INTS + 2));
+    }
+
+    String getValue(int index) {
+        return string(pool, records.get(index * RECORD_INTS + 3));
+    }
+
+    int getFlags(int index) {
+        return records.get(index * RECORD_INTS + 4);
+    }
+
+    int getChildCount(int slot) {
+        return childStart.get(slot + 1) - childStart.get(slot);
+    }
+
+    int getChild(int slot, int n) {
+        return childList.get(childStart.get(slot) + n);
+    }
+
+    /**
+     * Binary search of the sorted ids, no map is built.
+     */
+    int indexOf(String id) {
+        String key = JAXRConceptsManager.indexKey(id);
+        int position = lowerBound(ID_ORDER, key);
+        if (position < size()) {
+            int index = getOrdered(ID_ORDER, position);
+            if (key.equals(key(ID_ORDER, index)))
+                return index;
+        }
+        return -1;
+    }
+
+    /**
+     * The first child of the slot whose upper cased value is the key,
+     * or -1. The children of a slot are sorted by value in the store.
+     */
+    int findChild(int slot, String key) {
+        int low = childStart.get(slot);
+        int high = childStart.get(slot + 1);
+        int end = high;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKeys(key(VALUE_ORDER, childrenByValue.get(mid)), key) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        if (low < end) {
+            int index = childrenByValue.get(low);
+            if (key.equals(key(VALUE_ORDER, index)))
+                return index;
+        }
+        return -1;
+    }
+
+    /**
+     * The concept at a position of one of the orders.
+     */
+    int getOrdered(int order, int position) {
+        return orders[order].get(position);
+    }
+
+    /**
+     * The first position of the order whose key is not less than the
+     * key, size() if there is none. Concepts without a key are last.
+     */
+    int lowerBound(int order, String key) {
+        IntBuffer sorted = orders[order];
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKeys(key(order, sorted.get(mid)), key) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * The key of a concept in one of the orders, null if it has none.
+     */
+    String key(int order, int index) {
+        return key(this, order, index);
+    }
+
+    /**
+     * The number of levels from the scheme down to the concept,
+     * 1 for a child of the scheme.
+     */
+    int getDepth(int index) {
+        int depth = 0;
+        for (int i = index; i >= 0; i = getParent(i))
+            depth++;
+        return depth;
+    }
+
+    /**
+     * The concepts array is all this keeps on the heap up front.
+     */
+    long getEstimatedSize() {
+        return size() * 4L + 16 * 6;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.tools;
+
+import javax.xml.registry.*;
+
+import com.sun.xml.registry.uddi.infomodel.*;
+
+import java.io.*;
+import java.util.*;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads a taxonomy file in the jaxrconcepts.dtd format with a StAX
+ * parser, straight into one FlatTaxonomy per scheme. Unlike the JAXB
+ * loader no object is created per concept while reading; the concepts
+ * go into growable int arrays and a table of distinct strings, which
+ * keeps the peak heap of large user taxonomies close to the size of
+ * the result.
+ * <p>
+ * The schemes come out as the JAXB loader builds them: concepts of a
+ * scheme are listed flat and find their parent by id, concepts whose
+ * parent is unknown are dropped. A scheme whose name contains "unspsc"
+ * is nested instead; its top level concepts are left out and their
+ * descendants kept as they are nested, the outermost ones becoming
+ * children of the scheme.
+ */
+class StreamingTaxonomyLoader {
+
+    private static final String SCHEME = "JAXRClassificationScheme";
+    private static final String CONCEPT = "JAXRConcept";
+    // parent index of a concept that is left out, with its descendants
+    private static final int DROPPED = -2;
+
+    private final XMLStreamReader reader;
+    private final ArrayList strings = new ArrayList();
+    private final HashMap stringIndexes = new HashMap();
+
+    private StreamingTaxonomyLoader(XMLStreamReader reader) {
+        this.reader = reader;
+    }
+
+    // a factory per read, files are loaded in parallel and each gets
+    // a parser of its own
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // taxonomy files do not need the DTD they may refer to
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(
+            XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Reads all schemes of the stream, which is not closed.
+     */
+    static List read(InputStream is) throws JAXRException, XMLStreamException {
+        XMLStreamReader reader = newFactory().createXMLStreamReader(is);
+        try {
+            return new StreamingTaxonomyLoader(reader).readSchemes();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private List readSchemes() throws JAXRException, XMLStreamException {
+        List taxonomies = new ArrayList();
+        while (reader.hasNext()) {
+            if ((reader.next() == XMLStreamConstants.START_ELEMENT) &&
+                SCHEME.equals(reader.getLocalName()))
+                taxonomies.add(readScheme());
+        }
+        String[] table = (String[]) strings.toArray(new String[strings.size()]);
+        for (int i = 0; i < taxonomies.size(); i++) {
+            Scheme scheme = (Scheme) taxonomies.get(i);
+            taxonomies.set(i, new FlatTaxonomy(scheme.scheme, table,
+                scheme.parents.toArray(), scheme.ids.toArray(),
+                scheme.names.toArray(), scheme.codes.toArray(),
+                scheme.flags.toByteArray()));
+        }
+        return taxonomies;
+    }
+
+    // reads up to the end of the scheme element the reader is on
+    private Scheme readScheme() throws JAXRException, XMLStreamException {
+        String id = reader.getAttributeValue(null, "id");
+        String name = reader.getAttributeValue(null, "name");
+        ClassificationSchemeImpl classificationScheme =
+            new ClassificationSchemeImpl(new KeyImpl(id));
+        classificationScheme.setName(new InternationalStringImpl(
+            JAXRConceptsManager.US_LOCALE, name));
+        classificationScheme.setDescription(new InternationalStringImpl(
+            JAXRConceptsManager.US_LOCALE,
+            reader.getAttributeValue(null, "description")));
+        classificationScheme.setPredefined(true);
+        Scheme scheme = new Scheme(classificationScheme);
+        boolean nested = (name != null) && (name.indexOf("unspsc") != -1);
+
+        // flat schemes: concept id to index, the scheme itself is -1
+        HashMap indexes = new HashMap();
+        indexes.put(id, new Integer(-1));
+        // nested schemes: index of the open concept at each depth
+        IntList open = new IntList();
+        open.add(DROPPED);
+        int depth = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 0)
+                    return scheme;
+                open.size--;
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+            depth++;
+            int index = DROPPED;
+            if (CONCEPT.equals(reader.getLocalName())) {
+                if (nested) {
+                    // top level concepts are left out
+                    if (depth == 2)
+                        index = scheme.add(-1, this, 0);
+                    else if (depth > 2 && open.get(depth - 1) != DROPPED)
+                        index = scheme.add(open.get(depth - 1), this, 0);
+                } else if (depth == 1) {
+                    Integer parent = (Integer) indexes.get(
+                        reader.getAttributeValue(null, "parent"));
+                    if ((parent != null) && (parent.intValue() != DROPPED))
+                        index = scheme.add(parent.intValue(), this,
+                            FlatTaxonomy.PREDEFINED);
+                    // a later concept with the same id takes its place
+                    indexes.put(reader.getAttributeValue(null, "id"),
+                        new Integer(index));
+                }
+            }
+            open.add(index);
+        }
+    }
+
+    // ids and codes are rarely shared, they are not looked up
+    private int append(String string) {
+        if (string == null)
+            return -1;
+        strings.add(string);
+        return strings.size() - 1;
+    }
+
+    private int intern(String string) {
+        if (string == null)
+            return -1;
+        Integer index = (Integer) stringIndexes.get(string);
+        if (index == null) {
+            index = new Integer(strings.size());
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * The concepts of one scheme read so far.
+     */
+    private static final class Scheme {
+
+        final ClassificationSchemeImpl scheme;
+        final IntList parents = new IntList();
+        final IntList ids = new IntList();
+        final IntList names = new IntList();
+        final IntList codes = new IntList();
+        final IntList flags = new IntList();
+
+        Scheme(ClassificationSchemeImpl scheme) {
+            this.scheme = scheme;
+        }
+
+        // adds the concept the reader is on, returns its index
+        int add(int parent, StreamingTaxonomyLoader loader, int flag) {
+            XMLStreamReader reader = loader.reader;
+            parents.add(parent);
+            ids.add(loader.append(reader.getAttributeValue(null, "id")));
+            names.add(loader.intern(reader.getAttributeValue(null, "name")));
+            codes.add(loader.append(reader.getAttributeValue(null, "code")));
+            flags.add(flag);
+            return parents.size - 1;
+        }
+    }
+
+    private static final class IntList {
+
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int[] toArray() {
+            int[] array = new int[size];
+            System.arraycopy(values, 0, array, 0, size);
+            return array;
+        }
+
+        byte[] toByteArray() {
+            byte[] array = new byte[size];
+            for (int i = 0; i < size; i++)
+                array[i] = (byte) values[i];
+            return array;
+        }
+    }
+}
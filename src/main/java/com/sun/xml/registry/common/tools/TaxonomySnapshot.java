@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.tools;
+
+import javax.xml.registry.*;
+import javax.xml.registry.infomodel.*;
+
+import com.sun.xml.registry.uddi.infomodel.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Compact binary form of the ClassificationSchemes read from a bundled
+ * taxonomy file. The build writes one snapshot next to each bundled
+ * XML file (see the taxonomy-snapshots execution in pom.xml), and
+ * JAXRConceptsManager reads it instead of unmarshalling the XML.
+ * <p>
+ * Layout: magic and version, a table of all distinct strings, then
+ * per scheme the string indexes of its id, name and description and
+ * the concepts in depth first order. A concept is its parent index
+ * (-1 for a child of the scheme), the string indexes of its id, name
+ * and code, and flags. A string index of -1 stands for null.
+ */
+public class TaxonomySnapshot {
+
+    static final String SUFFIX = ".snapshot";
+
+    private static final int MAGIC = 0x4A415852;
+    private static final int VERSION = 1;
+    private static final int PREDEFINED = FlatTaxonomy.PREDEFINED;
+
+    private TaxonomySnapshot() {
+    }
+
+    /**
+     * Builds the snapshots of the bundled taxonomies. Arguments are the
+     * output directory followed by the XML file names to convert, e.g.
+     * "naics.xml".
+     */
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args[0]);
+        dir.mkdirs();
+        for (int i = 1; i < args.length; i++) {
+            List schemes = JAXRConceptsManager.parseBundledTaxonomy(args[i]);
+            if (schemes == null)
+                throw new FileNotFoundException(args[i]);
+            String name = args[i];
+            if (name.endsWith(".xml"))
+                name = name.substring(0, name.length() - 4);
+            File file = new File(dir, name + SUFFIX);
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                write(schemes, out);
+            } finally {
+                out.close();
+            }
+            System.out.println("Wrote " + file + " (" + file.length() + " bytes)");
+        }
+    }
+
+    /**
+     * Returns the name of the snapshot of a taxonomy file.
+     */
+    static String getSnapshotName(String filename) {
+        if (filename.endsWith(".xml"))
+            filename = filename.substring(0, filename.length() - 4);
+        return filename + SUFFIX;
+    }
+
+    static void write(List schemes, OutputStream os) throws JAXRException, IOException {
+        ArrayList strings = new ArrayList();
+        HashMap stringIndexes = new HashMap();
+        ArrayList records = new ArrayList();
+        for (int i = 0; i < schemes.size(); i++) {
+            ClassificationScheme scheme = (ClassificationScheme) schemes.get(i);
+            ArrayList concepts = new ArrayList();
+            collect(scheme.getChildrenConcepts(), -1, concepts,
+                strings, stringIndexes);
+            records.add(new int[] {
+                intern(scheme.getKey().getId(), strings, stringIndexes),
+                intern(getValue(scheme.getName()), strings, stringIndexes),
+                intern(getValue(scheme.getDescription()), strings, stringIndexes)});
+            records.add(concepts);
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(strings.size());
+        for (int i = 0; i < strings.size(); i++)
+            out.writeUTF((String) strings.get(i));
+        out.writeInt(schemes.size());
+        for (int i = 0; i < records.size(); i += 2) {
+            int[] scheme = (int[]) records.get(i);
+            out.writeInt(scheme[0]);
+            out.writeInt(scheme[1]);
+            out.writeInt(scheme[2]);
+            List concepts = (List) records.get(i + 1);
+            out.writeInt(concepts.size());
+            for (int j = 0; j < concepts.size(); j++) {
+                int[] concept = (int[]) concepts.get(j);
+                for (int k = 0; k < concept.length; k++)
+                    out.writeInt(concept[k]);
+            }
+        }
+        out.flush();
+    }
+
+    // depth first, so a parent is always written before its children
+    private static void collect(Collection children, int parent, List concepts,
+        List strings, Map stringIndexes) throws JAXRException {
+        if (children == null)
+            return;
+        Iterator iter = children.iterator();
+        while (iter.hasNext()) {
+            ConceptImpl concept = (ConceptImpl) iter.next();
+            int index = concepts.size();
+            concepts.add(new int[] {
+                parent,
+                intern(concept.getKey().getId(), strings, stringIndexes),
+                intern(getValue(concept.getName()), strings, stringIndexes),
+                intern(concept.getValue(), strings, stringIndexes),
+                concept.isPredefined() ? PREDEFINED : 0});
+            collect(concept.getChildrenConcepts(), index, concepts,
+                strings, stringIndexes);
+        }
+    }
+
+    private static String getValue(InternationalString string) throws JAXRException {
+        return (string == null) ? null :
+            string.getValue(JAXRConceptsManager.US_LOCALE);
+    }
+
+    private static int intern(String string, List strings, Map stringIndexes) {
+        if (string == null)
+            return -1;
+        Integer index = (Integer) stringIndexes.get(string);
+        if (index == null) {
+            index = new Integer(strings.size());
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * Reads the schemes of a snapshot written by write, as one
+     * FlatTaxonomy per scheme. Concepts are created from it as the
+     * XML loader sets them up, when they are first needed.
+     */
+    static List read(InputStream is) throws JAXRException, IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is, 65536));
+        if ((in.readInt() != MAGIC) || (in.readInt() != VERSION))
+            throw new IOException("Unknown taxonomy snapshot format");
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++)
+            strings[i] = in.readUTF();
+        int schemeCount = in.readInt();
+        List taxonomies = new ArrayList(schemeCount);
+        for (int i = 0; i < schemeCount; i++) {
+            ClassificationSchemeImpl scheme = new ClassificationSchemeImpl(
+                new KeyImpl(string(strings, in.readInt())));
+            scheme.setName(new InternationalStringImpl(
+                JAXRConceptsManager.US_LOCALE, string(strings, in.readInt())));
+            scheme.setDescription(new InternationalStringImpl(
+                JAXRConceptsManager.US_LOCALE, string(strings, in.readInt())));
+            scheme.setPredefined(true);
+            int count = in.readInt();
+            int[] parents = new int[count];
+            int[] ids = new int[count];
+            int[] names = new int[count];
+            int[] codes = new int[count];
+            byte[] flags = new byte[count];
+            for (int j = 0; j < count; j++) {
+                parents[j] = in.readInt();
+                ids[j] = in.readInt();
+                names[j] = in.readInt();
+                codes[j] = in.readInt();
+                flags[j] = (byte) in.readInt();
+            }
+            taxonomies.add(new FlatTaxonomy(scheme, strings,
+                parents, ids, names, codes, flags));
+        }
+        return taxonomies;
+    }
+
+    private static String string(String[] strings, int index) {
+        return (index < 0) ? null : strings[index];
+    }
+}
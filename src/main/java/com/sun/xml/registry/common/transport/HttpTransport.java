@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.common.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeader;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import com.sun.xml.registry.common.util.JAXRMetrics;
+
+/**
+ * Default transport, posting requests with HttpURLConnection. Responses
+ * are always read to the end and their streams closed, never
+ * disconnected, so the underlying sockets go back to the JDK keep-alive
+ * cache and later requests to the same host reuse them without a new
+ * TCP or TLS handshake. Requests to one route (scheme, host and port)
+ * are limited to the configured number of connections.
+ * <p>
+ * Replies with a plain XML body can be handed to a reader as they
+ * arrive (see StreamingTransport), others are parsed with SAAJ. Requests
+ * of known length are sent in fixed length streaming mode.
+ * <p>
+ * With compression configured, gzip and deflate encoded replies are
+ * asked for and inflated as they are read, and requests of known
+ * length above the configured size are sent gzip encoded. With Fast
+ * Infoset configured, Fast Infoset replies are asked for, and requests
+ * to a route are sent as Fast Infoset once it has answered in it,
+ * falling back to XML for good if it refuses them with 415.
+ */
+public class HttpTransport implements StreamingTransport {
+
+    Logger logger = Logger.getLogger(com.sun.xml.registry.common.util.Utility.LOGGING_DOMAIN + ".common");
+
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String SOAP_ACTION = "SOAPAction";
+    private static final String XML_CONTENT_TYPE = "text/xml; charset=utf-8";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String ACCEPT = "Accept";
+    private static final String FAST_INFOSET_CONTENT_TYPE = "application/fastinfoset";
+    // Fast Infoset preferred, XML as well
+    private static final String FAST_INFOSET_ACCEPT =
+        FAST_INFOSET_CONTENT_TYPE + ", text/xml;q=0.9";
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ConcurrentHashMap routes = new ConcurrentHashMap();
+    // routes that answered in Fast Infoset mapped to TRUE, requests to
+    // them are sent in it too, or to FALSE once they refused a request
+    private final ConcurrentHashMap fastInfosetRoutes = new ConcurrentHashMap();
+    private MessageFactory messageFactory;
+    private int maxConnectionsPerRoute;
+    private int connectTimeout;
+    private int readTimeout;
+    private Proxy httpProxy;
+    private Proxy httpsProxy;
+    private boolean compression;
+    private int compressRequestsAbove;
+    private boolean fastInfoset;
+
+    public HttpTransport() {
+    }
+
+    public void init(TransportConfig config) throws IOException {
+        maxConnectionsPerRoute = config.getMaxConnectionsPerRoute();
+        connectTimeout = config.getConnectTimeout();
+        readTimeout = config.getReadTimeout();
+        httpProxy = config.getHttpProxy();
+        httpsProxy = config.getHttpsProxy();
+        compression = config.isCompression();
+        compressRequestsAbove = config.getCompressRequestsAbove();
+        fastInfoset = config.isFastInfoset();
+        try {
+            messageFactory = MessageFactory.newInstance();
+        } catch (SOAPException se) {
+            IOException ioe = new IOException(se.getMessage());
+            ioe.initCause(se);
+            throw ioe;
+        }
+    }
+
+    public SOAPMessage call(SOAPMessage request, URL endpoint)
+        throws SOAPException, IOException {
+        return (SOAPMessage) call(request, endpoint, null);
+    }
+
+    public Object call(SOAPMessage request, URL endpoint, ResponseReader reader)
+        throws SOAPException, IOException {
+        Semaphore permits = acquireRoutePermit(endpoint);
+        try {
+            HttpURLConnection conn = openConnection(endpoint);
+            writeRequest(conn, request);
+            return readResponse(conn, reader);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public Object call(RequestWriter request, URL endpoint, ResponseReader reader)
+        throws SOAPException, IOException {
+        Semaphore permits = acquireRoutePermit(endpoint);
+        try {
+            // Fast Infoset is only sent once the endpoint has shown it
+            // understands it by answering in it
+            String route = getRoute(endpoint);
+            boolean useFastInfoset = fastInfoset &&
+                Boolean.TRUE.equals(fastInfosetRoutes.get(route));
+            request.setFastInfoset(useFastInfoset);
+            HttpURLConnection conn = openConnection(endpoint);
+            writeRequest(conn, request, useFastInfoset);
+            if (useFastInfoset &&
+                (conn.getResponseCode() == HttpURLConnection.HTTP_UNSUPPORTED_TYPE)) {
+                InputStream error = conn.getErrorStream();
+                if (error != null) {
+                    drain(error);
+                    error.close();
+                }
+                fastInfosetRoutes.put(route, Boolean.FALSE);
+                JAXRMetrics.increment(JAXRMetrics.HTTP_FAST_INFOSET_FALLBACKS);
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest("Fast Infoset refused by " + route + ", sending XML");
+                request.setFastInfoset(false);
+                conn = openConnection(endpoint);
+                writeRequest(conn, request, false);
+            }
+            if (fastInfoset && !fastInfosetRoutes.containsKey(route) &&
+                isFastInfoset(conn.getContentType()) &&
+                (fastInfosetRoutes.putIfAbsent(route, Boolean.TRUE) == null)) {
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest("Fast Infoset accepted by " + route);
+            }
+            return readResponse(conn, reader);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void close() {
+        routes.clear();
+    }
+
+    protected HttpURLConnection openConnection(URL endpoint) throws IOException {
+        Proxy proxy = "https".equalsIgnoreCase(endpoint.getProtocol()) ?
+            httpsProxy : httpProxy;
+        URLConnection urlConnection = (proxy == null) ?
+            endpoint.openConnection() : endpoint.openConnection(proxy);
+        if (!(urlConnection instanceof HttpURLConnection))
+            throw new IOException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("HttpTransport:Unexpected_HTTP_response_") + endpoint);
+        HttpURLConnection conn = (HttpURLConnection) urlConnection;
+        conn.setConnectTimeout(connectTimeout);
+        conn.setReadTimeout(readTimeout);
+        conn.setUseCaches(false);
+        conn.setDoOutput(true);
+        conn.setDoInput(true);
+        conn.setRequestMethod("POST");
+        if (compression)
+            conn.setRequestProperty(ACCEPT_ENCODING, GZIP + ", " + DEFLATE);
+        return conn;
+    }
+
+    private void writeRequest(HttpURLConnection conn, SOAPMessage request)
+        throws SOAPException, IOException {
+        if (request.saveRequired())
+            request.saveChanges();
+        MimeHeaders headers = request.getMimeHeaders();
+        Iterator iter = headers.getAllHeaders();
+        while (iter.hasNext()) {
+            MimeHeader header = (MimeHeader) iter.next();
+            conn.setRequestProperty(header.getName(), header.getValue());
+        }
+        if (headers.getHeader(CONTENT_TYPE) == null)
+            conn.setRequestProperty(CONTENT_TYPE, XML_CONTENT_TYPE);
+        // UDDI requires the header to be present, even if empty
+        if (headers.getHeader(SOAP_ACTION) == null)
+            conn.setRequestProperty(SOAP_ACTION, "\"\"");
+
+        OutputStream out = conn.getOutputStream();
+        try {
+            request.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeRequest(HttpURLConnection conn, RequestWriter request,
+        boolean useFastInfoset) throws IOException {
+        Iterator iter = request.getHeaders().entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            conn.setRequestProperty((String) entry.getKey(), (String) entry.getValue());
+        }
+        if (conn.getRequestProperty(CONTENT_TYPE) == null)
+            conn.setRequestProperty(CONTENT_TYPE, useFastInfoset ?
+                FAST_INFOSET_CONTENT_TYPE : XML_CONTENT_TYPE);
+        if (conn.getRequestProperty(SOAP_ACTION) == null)
+            conn.setRequestProperty(SOAP_ACTION, "\"\"");
+        if (fastInfoset)
+            conn.setRequestProperty(ACCEPT, FAST_INFOSET_ACCEPT);
+        if (useFastInfoset)
+            JAXRMetrics.increment(JAXRMetrics.HTTP_FAST_INFOSET_REQUESTS);
+        int length = request.getLength();
+        ByteArrayOutputStream compressed = null;
+        if ((compressRequestsAbove > 0) && (length > compressRequestsAbove)) {
+            compressed = new ByteArrayOutputStream(length / 4);
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed, BUFFER_SIZE);
+            request.writeTo(gzip);
+            gzip.close();
+            conn.setRequestProperty(CONTENT_ENCODING, GZIP);
+            JAXRMetrics.increment(JAXRMetrics.HTTP_REQUESTS_COMPRESSED);
+            JAXRMetrics.add(JAXRMetrics.HTTP_REQUEST_BYTES_SAVED,
+                length - compressed.size());
+            length = compressed.size();
+        }
+        // with the length known up front the request goes straight to
+        // the socket instead of being buffered again by the connection
+        if (length >= 0)
+            conn.setFixedLengthStreamingMode(length);
+
+        OutputStream out = conn.getOutputStream();
+        try {
+            if (compressed != null)
+                compressed.writeTo(out);
+            else
+                request.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    // a SOAPMessage if reader is null, else what the reader returns
+    private Object readResponse(HttpURLConnection conn, ResponseReader reader)
+        throws SOAPException, IOException {
+        int code = conn.getResponseCode();
+        InputStream in = (code >= HttpURLConnection.HTTP_BAD_REQUEST) ?
+            conn.getErrorStream() : conn.getInputStream();
+        String contentType = conn.getContentType();
+        // SOAP faults come back with status 500 and an xml or Fast
+        // Infoset body, anything else is a transport error
+        if ((in == null) || ((code >= HttpURLConnection.HTTP_BAD_REQUEST) &&
+            ((contentType == null) || ((contentType.indexOf("xml") == -1) &&
+            !isFastInfoset(contentType))))) {
+            if (in != null) {
+                try {
+                    drain(in);
+                } finally {
+                    in.close();
+                }
+            }
+            throw new IOException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("HttpTransport:Unexpected_HTTP_response_") +
+                code + " " + conn.getResponseMessage());
+        }
+
+        // the wire and the inflated bytes of a compressed reply
+        CountingInputStream wire = null;
+        CountingInputStream content = null;
+        String encoding = conn.getContentEncoding();
+        if (encoding != null)
+            encoding = encoding.trim().toLowerCase(Locale.ENGLISH);
+        try {
+            if (GZIP.equals(encoding) || "x-gzip".equals(encoding) ||
+                DEFLATE.equals(encoding)) {
+                wire = new CountingInputStream(in);
+                content = new CountingInputStream(inflate(wire, encoding));
+                in = content;
+            }
+            Object result = readResponse(conn, in, (wire != null), reader);
+            drain(in);
+            if (wire != null)
+                drain(wire);
+            return result;
+        } finally {
+            in.close();
+            if (content != null) {
+                JAXRMetrics.increment(JAXRMetrics.HTTP_RESPONSES_COMPRESSED);
+                JAXRMetrics.add(JAXRMetrics.HTTP_RESPONSE_BYTES_SAVED,
+                    content.count - wire.count);
+            }
+        }
+    }
+
+    // in is the reply as sent, inflated if it was compressed
+    private Object readResponse(HttpURLConnection conn, InputStream in,
+        boolean inflated, ResponseReader reader)
+        throws SOAPException, IOException {
+        String contentType = conn.getContentType();
+        if ((reader != null) && (contentType != null) &&
+            (contentType.toLowerCase(Locale.ENGLISH).indexOf("multipart") == -1))
+            return reader.read(in, contentType);
+
+        MimeHeaders headers = new MimeHeaders();
+        Iterator iter = conn.getHeaderFields().entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            String name = (String) entry.getKey();
+            if (name == null)
+                continue; // status line
+            // the encoding and length of the wire, not of the message
+            if (inflated && (name.equalsIgnoreCase(CONTENT_ENCODING) ||
+                name.equalsIgnoreCase(CONTENT_LENGTH)))
+                continue;
+            Iterator values = ((List) entry.getValue()).iterator();
+            while (values.hasNext())
+                headers.addHeader(name, (String) values.next());
+        }
+        SOAPMessage reply = messageFactory.createMessage(headers, in);
+        // parse now, the stream goes back to the pool afterwards
+        reply.getSOAPBody();
+        return (reader == null) ? reply : reader.read(reply);
+    }
+
+    private boolean isFastInfoset(String contentType) {
+        return (contentType != null) && contentType.toLowerCase(Locale.ENGLISH).
+            startsWith(FAST_INFOSET_CONTENT_TYPE);
+    }
+
+    private InputStream inflate(InputStream in, String encoding)
+        throws IOException {
+        if (!DEFLATE.equals(encoding))
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        // deflate should be zlib wrapped, some servers send raw deflate
+        // data instead: a zlib header is a multiple of 31 with method 8
+        PushbackInputStream pushback = new PushbackInputStream(in, 2);
+        int cmf = pushback.read();
+        int flg = (cmf == -1) ? -1 : pushback.read();
+        if (flg != -1)
+            pushback.unread(flg);
+        if (cmf != -1)
+            pushback.unread(cmf);
+        boolean zlib = ((cmf & 0x0f) == 8) && (flg != -1) &&
+            (((cmf << 8) | flg) % 31 == 0);
+        final Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(pushback, inflater, BUFFER_SIZE) {
+            public void close() throws IOException {
+                super.close();
+                // not done by InflaterInputStream for a given inflater
+                inflater.end();
+            }
+        };
+    }
+
+    // reading to the end lets the connection be kept alive
+    private void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[512];
+        while (in.read(buffer) != -1)
+            ;
+    }
+
+    private Semaphore acquireRoutePermit(URL endpoint) throws IOException {
+        Semaphore permits = getRoutePermits(endpoint);
+        try {
+            permits.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ie.getMessage());
+        }
+        return permits;
+    }
+
+    private String getRoute(URL endpoint) {
+        int port = (endpoint.getPort() == -1) ? endpoint.getDefaultPort() : endpoint.getPort();
+        return endpoint.getProtocol() + "://" + endpoint.getHost() + ":" + port;
+    }
+
+    private Semaphore getRoutePermits(URL endpoint) {
+        String route = getRoute(endpoint);
+        Semaphore permits = (Semaphore) routes.get(route);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(Math.max(maxConnectionsPerRoute, 1), true);
+            permits = (Semaphore) routes.putIfAbsent(route, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest("New route " + route);
+            }
+        }
+        return permits;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                count++;
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.common.transport;
+
+import java.io.IOException;
+import java.net.URL;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+/**
+ * Sends SOAP requests to a registry endpoint. A transport is created
+ * once per connection and used concurrently by all of its threads,
+ * so implementations must be thread safe.
+ *
+ * Implementations other than the bundled ones can be plugged in with
+ * the com.sun.xml.registry.transport connection property; they need
+ * a public no-argument constructor.
+ *
+ * @see TransportFactory
+ */
+public interface RegistryTransport {
+
+    /**
+     * Called once before the first request with the settings of
+     * the connection.
+     */
+    void init(TransportConfig config) throws IOException;
+
+    /**
+     * Posts the request to the endpoint and returns the reply.
+     */
+    SOAPMessage call(SOAPMessage request, URL endpoint)
+        throws SOAPException, IOException;
+
+    /**
+     * Releases pooled connections. Called when the JAXR
+     * connection is closed.
+     */
+    void close();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.common.transport;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+
+import javax.xml.soap.SOAPConnection;
+import javax.xml.soap.SOAPConnectionFactory;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+/**
+ * Transport using the SAAJ SOAPConnection of the runtime. This
+ * is how the provider used to send all requests; it opens a new
+ * HTTP connection per call and ignores the pooling settings. The
+ * SOAPConnection cannot be given a proxy, so this transport only
+ * uses the JVM wide proxy settings, not those of the connection.
+ */
+public class SAAJTransport implements RegistryTransport {
+
+    private SOAPConnectionFactory scf;
+
+    public SAAJTransport() {
+    }
+
+    public void init(TransportConfig config) throws IOException {
+        try {
+            scf = (SOAPConnectionFactory)
+            AccessController.doPrivileged(new PrivilegedExceptionAction() {
+                public Object run() throws SOAPException {
+                    return SOAPConnectionFactory.newInstance();
+                }
+            });
+        } catch (PrivilegedActionException pae) {
+            IOException ioe = new IOException(pae.getException().getMessage());
+            ioe.initCause(pae.getException());
+            throw ioe;
+        }
+    }
+
+    public SOAPMessage call(SOAPMessage request, URL endpoint)
+        throws SOAPException, IOException {
+        SOAPConnection soapConnection = scf.createConnection();
+        try {
+            return soapConnection.call(request, endpoint);
+        } finally {
+            soapConnection.close();
+        }
+    }
+
+    public void close() {
+    }
+}
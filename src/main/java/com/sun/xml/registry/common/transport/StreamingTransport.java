@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.common.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Map;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+/**
+ * A transport that can hand the reply to a reader as it arrives,
+ * instead of building a SAAJ message from it first, and send requests
+ * that are already serialized. Transports that do not implement this
+ * are called through RegistryTransport.call.
+ */
+public interface StreamingTransport extends RegistryTransport {
+
+    /**
+     * Posts the request to the endpoint and returns what the reader
+     * made of the reply. The reply stream is drained and closed by
+     * the transport once the reader returns.
+     */
+    Object call(SOAPMessage request, URL endpoint, ResponseReader reader)
+        throws SOAPException, IOException;
+
+    /**
+     * As above, with a request written by a RequestWriter instead of
+     * a SOAPMessage.
+     */
+    Object call(RequestWriter request, URL endpoint, ResponseReader reader)
+        throws SOAPException, IOException;
+
+    /**
+     * A request serialized without SAAJ, e.g. a SOAP envelope written
+     * around a marshalled JAXB object.
+     */
+    interface RequestWriter {
+
+        /**
+         * HTTP headers of the request, names mapped to String values.
+         * Content-Type and SOAPAction default as for SOAPMessages.
+         */
+        Map getHeaders();
+
+        /**
+         * Called before the request is written with true if it is to
+         * be sent as Fast Infoset (application/fastinfoset), which the
+         * transport only asks for once the endpoint has answered in it.
+         */
+        void setFastInfoset(boolean fastInfoset);
+
+        /**
+         * Length of the request in bytes, -1 if it is not known before
+         * writing.
+         */
+        int getLength() throws IOException;
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Turns a reply into the object returned by call.
+     */
+    interface ResponseReader {
+
+        /**
+         * Reads a reply whose body is a plain SOAP envelope, XML or
+         * Fast Infoset as told by its content type.
+         */
+        Object read(InputStream in, String contentType)
+            throws SOAPException, IOException;
+
+        /**
+         * Reads a reply the transport had to parse as a SOAPMessage,
+         * e.g. one with attachments.
+         */
+        Object read(SOAPMessage reply) throws SOAPException, IOException;
+    }
+}
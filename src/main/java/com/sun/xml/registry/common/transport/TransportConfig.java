@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.common.transport;
+
+import java.net.Proxy;
+
+/**
+ * Connection level settings handed to a RegistryTransport.
+ * Timeouts are in milliseconds, 0 meaning no timeout.
+ */
+public class TransportConfig {
+
+    // matches the default size of the JDK keep-alive cache
+    // (http.maxConnections) so every pooled connection is reused
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 5;
+
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int connectTimeout;
+    private int readTimeout;
+    private Proxy httpProxy;
+    private Proxy httpsProxy;
+    private boolean compression;
+    private int compressRequestsAbove;
+    private boolean fastInfoset;
+
+    public TransportConfig() {
+    }
+
+    /**
+     * Maximum number of requests in flight to the same
+     * host and port. Further requests wait for a free slot.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Proxy for http endpoints of this connection, null to use
+     * the default ProxySelector of the JVM.
+     */
+    public Proxy getHttpProxy() {
+        return httpProxy;
+    }
+
+    public void setHttpProxy(Proxy httpProxy) {
+        this.httpProxy = httpProxy;
+    }
+
+    /**
+     * Proxy for https endpoints of this connection, null to use
+     * the default ProxySelector of the JVM.
+     */
+    public Proxy getHttpsProxy() {
+        return httpsProxy;
+    }
+
+    public void setHttpsProxy(Proxy httpsProxy) {
+        this.httpsProxy = httpsProxy;
+    }
+
+    /**
+     * If true, gzip and deflate compressed replies are asked for.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Requests longer than this many bytes are sent gzip compressed,
+     * 0 to never compress requests. Only for registries that accept
+     * compressed requests.
+     */
+    public int getCompressRequestsAbove() {
+        return compressRequestsAbove;
+    }
+
+    public void setCompressRequestsAbove(int compressRequestsAbove) {
+        this.compressRequestsAbove = compressRequestsAbove;
+    }
+
+    /**
+     * If true, Fast Infoset replies are asked for, and requests are
+     * sent as Fast Infoset to endpoints that answered in it.
+     */
+    public boolean isFastInfoset() {
+        return fastInfoset;
+    }
+
+    public void setFastInfoset(boolean fastInfoset) {
+        this.fastInfoset = fastInfoset;
+    }
+}
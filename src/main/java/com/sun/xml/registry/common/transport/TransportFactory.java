@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.common.transport;
+
+import java.io.IOException;
+import java.util.ResourceBundle;
+
+/**
+ * Creates the transport named by the com.sun.xml.registry.transport
+ * connection property: "http" (the default) for HttpTransport, "saaj"
+ * for SAAJTransport, or the name of a class implementing
+ * RegistryTransport.
+ */
+public class TransportFactory {
+
+    public static final String HTTP = "http";
+    public static final String SAAJ = "saaj";
+
+    private TransportFactory() {
+    }
+
+    public static RegistryTransport createTransport(String name,
+        TransportConfig config) throws IOException {
+        RegistryTransport transport;
+        if ((name == null) || name.equals("") || name.equalsIgnoreCase(HTTP)) {
+            transport = new HttpTransport();
+        } else if (name.equalsIgnoreCase(SAAJ)) {
+            transport = new SAAJTransport();
+        } else {
+            try {
+                ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                if (loader == null)
+                    loader = TransportFactory.class.getClassLoader();
+                transport = (RegistryTransport) Class.forName(name, true, loader).newInstance();
+            } catch (Exception e) {
+                IOException ioe = new IOException(ResourceBundle.getBundle("com/sun/xml/registry/common/LocalStrings").getString("TransportFactory:Cannot_create_transport_") + name);
+                ioe.initCause(e);
+                throw ioe;
+            }
+        }
+        transport.init(config);
+        return transport;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.common.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide counters of the JAXR provider. Counters are
+ * created on first use and identified by name, e.g.
+ * "jaxb.context.builds". Values can be read one by one
+ * or as a snapshot for monitoring.
+ */
+public class JAXRMetrics {
+
+    public static final String JAXB_CONTEXT_BUILDS = "jaxb.context.builds";
+    public static final String JAXB_MARSHALLERS_CREATED = "jaxb.marshallers.created";
+    public static final String JAXB_UNMARSHALLERS_CREATED = "jaxb.unmarshallers.created";
+    public static final String ASYNC_SUBMITTED = "async.submitted";
+    public static final String ASYNC_COMPLETED = "async.completed";
+    public static final String ASYNC_FAILED = "async.failed";
+    public static final String ASYNC_REJECTED = "async.rejected";
+    public static final String ASYNC_CANCELLED = "async.cancelled";
+    // commands waiting for a thread
+    public static final String ASYNC_QUEUED = "async.queued";
+    // responses of asynchronous connections not yet retrieved
+    public static final String ASYNC_RESPONSES_PENDING = "async.responses.pending";
+    public static final String ASYNC_RESPONSES_EXPIRED = "async.responses.expired";
+
+    // taxonomy files parsed, with the time spent and the number and
+    // estimated heap size of the concepts read from them
+    public static final String TAXONOMY_FILES_LOADED = "taxonomy.files.loaded";
+    public static final String TAXONOMY_LOAD_MILLIS = "taxonomy.load.millis";
+    public static final String TAXONOMY_CONCEPTS = "taxonomy.concepts";
+    public static final String TAXONOMY_ESTIMATED_BYTES = "taxonomy.estimated.bytes";
+    // taxonomy files read from a build time snapshot instead of XML
+    public static final String TAXONOMY_SNAPSHOTS_LOADED = "taxonomy.snapshots.loaded";
+    // predefined concepts created from their flat form so far
+    public static final String TAXONOMY_CONCEPTS_MATERIALIZED = "taxonomy.concepts.materialized";
+    // memory-mapped stores of user defined taxonomies written from
+    // XML and mapped without reading the XML
+    public static final String TAXONOMY_STORES_BUILT = "taxonomy.stores.built";
+    public static final String TAXONOMY_STORES_MAPPED = "taxonomy.stores.mapped";
+
+    // HTTP messages sent or received compressed, and the bytes the
+    // compression saved on the wire
+    public static final String HTTP_REQUESTS_COMPRESSED = "http.requests.compressed";
+    public static final String HTTP_REQUEST_BYTES_SAVED = "http.request.bytes.saved";
+    public static final String HTTP_RESPONSES_COMPRESSED = "http.responses.compressed";
+    public static final String HTTP_RESPONSE_BYTES_SAVED = "http.response.bytes.saved";
+    // requests sent as Fast Infoset, and requests sent again as XML
+    // after the endpoint refused Fast Infoset
+    public static final String HTTP_FAST_INFOSET_REQUESTS = "http.fastinfoset.requests";
+    public static final String HTTP_FAST_INFOSET_FALLBACKS = "http.fastinfoset.fallbacks";
+
+    private static final ConcurrentHashMap counters = new ConcurrentHashMap();
+
+    private JAXRMetrics() {
+    }
+
+    private static AtomicLong getCounter(String name) {
+        AtomicLong counter = (AtomicLong) counters.get(name);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = (AtomicLong) counters.putIfAbsent(name, newCounter);
+            if (counter == null)
+                counter = newCounter;
+        }
+        return counter;
+    }
+
+    public static void increment(String name) {
+        getCounter(name).incrementAndGet();
+    }
+
+    public static void decrement(String name) {
+        getCounter(name).decrementAndGet();
+    }
+
+    public static void add(String name, long delta) {
+        getCounter(name).addAndGet(delta);
+    }
+
+    public static void set(String name, long value) {
+        getCounter(name).set(value);
+    }
+
+    public static long get(String name) {
+        AtomicLong counter = (AtomicLong) counters.get(name);
+        return (counter == null) ? 0 : counter.get();
+    }
+
+    /**
+     * Returns a sorted copy of all counters, names mapped
+     * to Long values.
+     */
+    public static Map getSnapshot() {
+        TreeMap snapshot = new TreeMap();
+        Iterator iter = counters.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            snapshot.put(entry.getKey(),
+                new Long(((AtomicLong) entry.getValue()).get()));
+        }
+        return snapshot;
+    }
+}
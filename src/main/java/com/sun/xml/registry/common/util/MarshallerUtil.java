@@ -25,6 +25,11 @@ import javax.xml.bind.Unmarshaller;
 import javax.xml.soap.MessageFactory;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,6 +37,10 @@ import java.io.OutputStream;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,9 +55,39 @@ public class MarshallerUtil {
 
     Logger logger = Logger.getLogger(com.sun.xml.registry.common.util.Utility.LOGGING_DOMAIN + ".common");
 
+    // maximum number of idle marshallers and unmarshallers kept for reuse
+    static final String POOL_SIZE_PROP = "com.sun.xml.registry.jaxb.poolSize";
+    private static final int DEFAULT_POOL_SIZE = 16;
+
     private static MarshallerUtil  instance = null;
     private String jaxrHome=null;
     private JAXBContext jc;
+    private BlockingQueue marshallers;
+    private BlockingQueue unmarshallers;
+    private XMLInputFactory inputFactory;
+    // Fast Infoset StAX factories, loaded by name as the library is
+    // only needed at run time and only if Fast Infoset is used
+    private static final String FI_INPUT_FACTORY =
+        "com.sun.xml.fastinfoset.stax.factory.StAXInputFactory";
+    private static final String FI_OUTPUT_FACTORY =
+        "com.sun.xml.fastinfoset.stax.factory.StAXOutputFactory";
+    private XMLInputFactory fastInfosetInputFactory;
+    // JAXB reads Fast Infoset directly if the parser interns names,
+    // which is not a factory property
+    private java.lang.reflect.Method setStringInterning;
+    private XMLOutputFactory fastInfosetOutputFactory;
+    private MessageFactory messageFactory;
+
+    // the envelope SAAJ writes around the body of a request, without
+    // the Content-Length SAAJ computes for it
+    private static final byte[] ENVELOPE_PREFIX = getBytes(
+        "<?xml version=\"1.0\" encoding=\"utf-8\" ?>" +
+        "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+        "<SOAP-ENV:Header/><SOAP-ENV:Body>");
+    private static final byte[] ENVELOPE_SUFFIX = getBytes(
+        "</SOAP-ENV:Body></SOAP-ENV:Envelope>");
+    private static final String ENVELOPE_PREFIX_NAME = "SOAP-ENV";
+    private static final String ENVELOPE_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
 
     /**
      * Class Constructor.
@@ -60,6 +99,10 @@ public class MarshallerUtil {
         // create a JAXBContext
        jc =
           JAXBContext.newInstance( "com.sun.xml.registry.uddi.bindings_v2_2" );
+       JAXRMetrics.increment(JAXRMetrics.JAXB_CONTEXT_BUILDS);
+       int poolSize = getPoolSize();
+       marshallers = new ArrayBlockingQueue(poolSize);
+       unmarshallers = new ArrayBlockingQueue(poolSize);
     }
 
     /**
@@ -81,46 +124,268 @@ public class MarshallerUtil {
         return instance;
     }
 
+    /**
+     * Returns the JAXBContext for the UDDI bindings shared
+     * by the whole process.
+     */
+    public JAXBContext getJAXBContext() {
+        return jc;
+    }
+
+    private int getPoolSize() {
+        String size = (String)
+        AccessController.doPrivileged(new PrivilegedAction() {
+            public Object run() {
+                return System.getProperty(POOL_SIZE_PROP);
+            }
+        });
+        if (size != null) {
+            try {
+                int poolSize = Integer.parseInt(size.trim());
+                if (poolSize > 0)
+                    return poolSize;
+            } catch (NumberFormatException nfe) {
+                logger.log(Level.WARNING, "Ignoring invalid " + POOL_SIZE_PROP + " " + size);
+            }
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+
+    // marshallers are not thread safe, each one is used by a single
+    // thread at a time and handed back to the pool afterwards
+    private Marshaller acquireMarshaller() throws JAXBException {
+        Marshaller m = (Marshaller) marshallers.poll();
+        if (m == null) {
+            m = jc.createMarshaller();
+            JAXRMetrics.increment(JAXRMetrics.JAXB_MARSHALLERS_CREATED);
+        }
+        return m;
+    }
+
+    private void releaseMarshaller(Marshaller m) {
+        //dropped if the pool is full
+        marshallers.offer(m);
+    }
+
+    private Unmarshaller acquireUnmarshaller() throws JAXBException {
+        Unmarshaller u = (Unmarshaller) unmarshallers.poll();
+        if (u == null) {
+            u = jc.createUnmarshaller();
+            JAXRMetrics.increment(JAXRMetrics.JAXB_UNMARSHALLERS_CREATED);
+        }
+        return u;
+    }
+
+    private void releaseUnmarshaller(Unmarshaller u) {
+        unmarshallers.offer(u);
+    }
+
      // create a Marshaller and marshal to System.out
      //public Document jaxbMarshalObject(Object obj)
      public SOAPMessage jaxbMarshalObject(Object obj)
              throws JAXBException {
 
          SOAPMessage msg = null;
-         Marshaller m = jc.createMarshaller();
+         Marshaller m = acquireMarshaller();
 
          try {
-             MessageFactory msgFactory = MessageFactory.newInstance();
-             msg = msgFactory.createMessage();
+             msg = getMessageFactory().createMessage();
 			 msg.setProperty(SOAPMessage.WRITE_XML_DECLARATION, "true");
              m.marshal(obj, msg.getSOAPBody());
          } catch (SOAPException se) {
              throw new JAXBException(se);
+         } finally {
+             releaseMarshaller(m);
          }
          return  msg;
      }
 
+    /**
+     * Writes a SOAP envelope with the object as the content of its body
+     * to the stream, as the message of jaxbMarshalObject would be
+     * written but without building it.
+     */
+    public void jaxbMarshalEnvelope(Object obj, OutputStream out)
+        throws JAXBException, IOException {
+
+        Marshaller m = acquireMarshaller();
+        try {
+            out.write(ENVELOPE_PREFIX);
+            m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            m.marshal(obj, out);
+            out.write(ENVELOPE_SUFFIX);
+        } finally {
+            m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+            releaseMarshaller(m);
+        }
+    }
+
+    /**
+     * As jaxbMarshalEnvelope, with the envelope written as a Fast
+     * Infoset document.
+     */
+    public void jaxbMarshalFastInfosetEnvelope(Object obj, OutputStream out)
+        throws JAXBException, IOException {
+
+        Marshaller m = acquireMarshaller();
+        try {
+            XMLStreamWriter writer = createFastInfosetStreamWriter(out);
+            writer.writeStartDocument();
+            writer.writeStartElement(ENVELOPE_PREFIX_NAME, "Envelope", ENVELOPE_NAMESPACE);
+            writer.writeNamespace(ENVELOPE_PREFIX_NAME, ENVELOPE_NAMESPACE);
+            writer.writeEmptyElement(ENVELOPE_PREFIX_NAME, "Header", ENVELOPE_NAMESPACE);
+            writer.writeStartElement(ENVELOPE_PREFIX_NAME, "Body", ENVELOPE_NAMESPACE);
+            m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            m.marshal(obj, writer);
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException xse) {
+            throw new JAXBException(xse);
+        } finally {
+            m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+            releaseMarshaller(m);
+        }
+    }
+
+    /**
+     * True if the Fast Infoset library is there to read and write
+     * application/fastinfoset messages.
+     */
+    public boolean isFastInfosetAvailable() {
+        try {
+            getFastInfosetOutputFactory();
+            return true;
+        } catch (JAXBException je) {
+            logger.log(Level.FINEST, je.toString(), je);
+            return false;
+        }
+    }
+
+    private synchronized XMLOutputFactory getFastInfosetOutputFactory()
+        throws JAXBException {
+        if (fastInfosetOutputFactory == null)
+            fastInfosetOutputFactory = (XMLOutputFactory) newInstance(FI_OUTPUT_FACTORY);
+        return fastInfosetOutputFactory;
+    }
+
+    private synchronized XMLStreamWriter createFastInfosetStreamWriter(OutputStream out)
+        throws JAXBException, XMLStreamException {
+        return getFastInfosetOutputFactory().createXMLStreamWriter(out);
+    }
+
+    private Object newInstance(String className) throws JAXBException {
+        try {
+            return Class.forName(className).newInstance();
+        } catch (Exception e) {
+            throw new JAXBException(e);
+        } catch (LinkageError le) {
+            throw new JAXBException(le.toString());
+        }
+    }
+
+    // MessageFactory.newInstance looks the implementation up each time,
+    // the factory itself can be shared
+    private synchronized MessageFactory getMessageFactory() throws SOAPException {
+        if (messageFactory == null)
+            messageFactory = MessageFactory.newInstance();
+        return messageFactory;
+    }
+
+    private static byte[] getBytes(String string) {
+        try {
+            return string.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new Error(uee.toString());
+        }
+    }
+
    public Object jaxbUnmarshalInputStream(InputStream result)throws JAXBException{
 
-       Unmarshaller u = jc.createUnmarshaller();
-       Object o = u.unmarshal( result );
-       return o;
+       Unmarshaller u = acquireUnmarshaller();
+       try {
+           return u.unmarshal( result );
+       } finally {
+           releaseUnmarshaller(u);
+       }
     }
 
     public OutputStream jaxbMarshalOutStream(Object result)throws JAXBException{
 
        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-       Marshaller u = jc.createMarshaller();
-       u.marshal( result, outStream);
+       Marshaller u = acquireMarshaller();
+       try {
+           u.marshal( result, outStream);
+       } finally {
+           releaseMarshaller(u);
+       }
  
        return outStream;
     }
 
+    /**
+     * Unmarshals the element the reader is positioned on, leaving the
+     * reader after its end tag.
+     */
+    public Object jaxbUnmarshalReader(XMLStreamReader reader) throws JAXBException {
+
+       Unmarshaller u = acquireUnmarshaller();
+       try {
+           return u.unmarshal(reader);
+       } finally {
+           releaseUnmarshaller(u);
+       }
+    }
+
+    /**
+     * Returns a StAX reader over the stream. DTDs and external entities
+     * are not supported, SOAP messages must not have them.
+     */
+    public XMLStreamReader createXMLStreamReader(InputStream in)
+        throws XMLStreamException {
+        // factories are not guaranteed to be thread safe, creating the
+        // reader is cheap next to parsing with it
+        synchronized (this) {
+            if (inputFactory == null) {
+                inputFactory = XMLInputFactory.newInstance();
+                inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+                inputFactory.setProperty(
+                    XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            }
+            return inputFactory.createXMLStreamReader(in);
+        }
+    }
+
+    /**
+     * Returns a StAX reader over a Fast Infoset document.
+     */
+    public XMLStreamReader createFastInfosetStreamReader(InputStream in)
+        throws XMLStreamException, JAXBException {
+        synchronized (this) {
+            if (fastInfosetInputFactory == null)
+                fastInfosetInputFactory = (XMLInputFactory) newInstance(FI_INPUT_FACTORY);
+            XMLStreamReader reader = fastInfosetInputFactory.createXMLStreamReader(in);
+            try {
+                if (setStringInterning == null)
+                    setStringInterning = reader.getClass().getMethod(
+                        "setStringInterning", new Class[] { Boolean.TYPE });
+                setStringInterning.invoke(reader, new Object[] { Boolean.TRUE });
+            } catch (Exception e) {
+                throw new JAXBException(e);
+            }
+            return reader;
+        }
+    }
+
      public Object jaxbUnmarshalObject(Node result)throws JAXBException{
 
-       Unmarshaller u = jc.createUnmarshaller();
-       Object o = u.unmarshal(result );
-       return o;
+       Unmarshaller u = acquireUnmarshaller();
+       try {
+           return u.unmarshal(result );
+       } finally {
+           releaseUnmarshaller(u);
+       }
     }
 
     public static String generateUUID() {
@@ -136,30 +401,11 @@ public class MarshallerUtil {
        return uuid;
     }
 
+    /**
+     * Logs the message at FINEST, see WireLog.
+     */
     public void log(SOAPMessage msg) {
-
-        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-        try {
-            msg.writeTo(outStream);
-        } catch (SOAPException e) {
-            e.printStackTrace();  //To change body of catch statement use Options | File Templates.
-        } catch (IOException e) {
-            e.printStackTrace();  //To change body of catch statement use Options | File Templates.
-        }
-        log(outStream);
-		
-    }
-
-    private  void log(ByteArrayOutputStream outStream){
-        String cmd = outStream.toString();
-        if (logger.isLoggable(Level.FINEST)){
-            if (cmd.indexOf("get_authToken") != -1)
-                logger.finest(XMLUtil.getInstance().authToken2XXX(cmd));
-            else if (cmd.indexOf("authInfo") != -1)
-                logger.finest(XMLUtil.getInstance().authInfo2XXX(cmd));
-            else
-                logger.finest(cmd);
-        }
+        WireLog.getInstance().log(msg);
     }
 
 }
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.common.util;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs the SOAP messages exchanged with the registry at FINEST. Nothing
+ * is serialized or copied unless the logger is loggable at FINEST, so
+ * the wire log costs a level check when it is off.
+ * <p>
+ * Messages are captured as they are written or read, through a Capture
+ * that drops the values of userID, cred and authInfo attributes and the
+ * content of authInfo elements on the fly. Two system properties keep
+ * the log usable in production: com.sun.xml.registry.wireLog.sampleRate
+ * logs one exchange out of that many, and
+ * com.sun.xml.registry.wireLog.maxBytes truncates longer messages.
+ */
+public class WireLog {
+
+    static final String SAMPLE_RATE_PROP = "com.sun.xml.registry.wireLog.sampleRate";
+    static final String MAX_BYTES_PROP = "com.sun.xml.registry.wireLog.maxBytes";
+
+    // what the values of secret attributes and elements are logged as
+    private static final byte[] MASK = { '*', '*', '*', '*', '*', '*', '*', '*' };
+
+    private static WireLog instance;
+
+    Logger logger = (Logger)
+    AccessController.doPrivileged(new PrivilegedAction() {
+        public Object run() {
+            // the logger messages were always written to
+            return Logger.getLogger(com.sun.xml.registry.common.util.Utility.LOGGING_DOMAIN + ".common");
+        }
+    });
+
+    private final int sampleRate;
+    private final int maxBytes;
+    private final AtomicLong exchanges = new AtomicLong();
+
+    private WireLog() {
+        sampleRate = getIntProperty(SAMPLE_RATE_PROP, 1);
+        maxBytes = getIntProperty(MAX_BYTES_PROP, 0);
+    }
+
+    public static synchronized WireLog getInstance() {
+        if (instance == null)
+            instance = new WireLog();
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return logger.isLoggable(Level.FINEST);
+    }
+
+    /**
+     * Called once per exchange, true if both its request and its
+     * reply are logged: every sampleRate-th exchange is.
+     */
+    public boolean sample() {
+        if (!isEnabled())
+            return false;
+        return (sampleRate <= 1) ||
+            (exchanges.getAndIncrement() % sampleRate == 0);
+    }
+
+    /**
+     * Returns a stream that logs what is written to it once closed.
+     */
+    public Capture newCapture() {
+        return new Capture();
+    }
+
+    /**
+     * Logs the message, if the logger is enabled. Sampling is left to
+     * the caller.
+     */
+    public void log(SOAPMessage msg) {
+        if (!isEnabled())
+            return;
+        Capture capture = newCapture();
+        try {
+            msg.writeTo(capture);
+        } catch (SOAPException e) {
+            logger.log(Level.FINEST, e.getMessage(), e);
+        } catch (IOException e) {
+            logger.log(Level.FINEST, e.getMessage(), e);
+        }
+        capture.close();
+    }
+
+    private int getIntProperty(final String name, int defaultValue) {
+        String value = (String)
+        AccessController.doPrivileged(new PrivilegedAction() {
+            public Object run() {
+                return System.getProperty(name);
+            }
+        });
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException nfe) {
+                logger.log(Level.WARNING, "Ignoring invalid " + name + " " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static boolean isSecret(String name) {
+        // the local part, prefixes do not matter
+        int colon = name.indexOf(':');
+        if (colon != -1)
+            name = name.substring(colon + 1);
+        return name.equals("userID") || name.equals("cred") ||
+            name.equals("authInfo");
+    }
+
+    /**
+     * Redacts and keeps the bytes written to it, up to maxBytes, and
+     * logs them on close. The message is scanned byte by byte; the
+     * markup characters looked for never occur inside a multi-byte
+     * UTF-8 sequence.
+     */
+    public final class Capture extends OutputStream {
+
+        // outside of markup, in a tag name, among the attributes of a
+        // tag, in an attribute value
+        private static final int TEXT = 0;
+        private static final int NAME = 1;
+        private static final int TAG = 2;
+        private static final int VALUE = 3;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final StringBuffer name = new StringBuffer();
+        private final StringBuffer attribute = new StringBuffer();
+        private int state = TEXT;
+        private long count;
+        private boolean truncated;
+        private boolean closed;
+        // the attribute name is followed by a space or '='
+        private boolean attributeEnded;
+        // the tag is an end tag or ends with "/>"
+        private boolean endTag;
+        private boolean emptyTag;
+        private boolean secretElement;
+        private boolean secretValue;
+        private byte quote;
+        // in the content of a secret element, and a '<' just seen there
+        private boolean inSecret;
+        private boolean lessThan;
+        private boolean masked;
+
+        private Capture() {
+        }
+
+        public void write(int b) {
+            count++;
+            switch (state) {
+            case TEXT:
+                if (inSecret) {
+                    // the content ends with the end tag, CDATA and all
+                    if (lessThan && (b == '/')) {
+                        inSecret = false;
+                        append('<');
+                        startTag();
+                        endTag = true;
+                        break;
+                    }
+                    lessThan = (b == '<');
+                    mask();
+                    return;
+                } else if (b == '<')
+                    startTag();
+                append(b);
+                return;
+            case NAME:
+                if ((b == '/') && (name.length() == 0) && !endTag) {
+                    endTag = true;
+                    break;
+                }
+                if (isSpace(b) || (b == '>') || (b == '/')) {
+                    secretElement = !endTag && isSecret(name.toString());
+                    name.setLength(0);
+                    state = TAG;
+                    tag(b);
+                    return;
+                }
+                name.append((char) b);
+                break;
+            case TAG:
+                tag(b);
+                return;
+            case VALUE:
+                if (b == quote) {
+                    state = TAG;
+                    break;
+                }
+                if (secretValue) {
+                    mask();
+                    return;
+                }
+                break;
+            }
+            append(b);
+        }
+
+        public void write(byte[] b, int off, int len) {
+            for (int i = 0; i < len; i++)
+                write(b[off + i]);
+        }
+
+        /**
+         * Returns a stream that captures what is read from in.
+         */
+        public InputStream tee(InputStream in) {
+            return new FilterInputStream(in) {
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1)
+                        write(b);
+                    return b;
+                }
+
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0)
+                        write(b, off, n);
+                    return n;
+                }
+
+                public long skip(long n) throws IOException {
+                    // skipped bytes would be missing from the log
+                    byte[] buffer = new byte[(int) Math.min(n, 512)];
+                    int read = read(buffer, 0, buffer.length);
+                    return (read < 0) ? 0 : read;
+                }
+
+                public boolean markSupported() {
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Logs what was captured, once.
+         */
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            String message;
+            try {
+                message = bytes.toString("UTF-8");
+            } catch (UnsupportedEncodingException uee) {
+                message = bytes.toString();
+            }
+            if (truncated)
+                message += " ... (" + count + " bytes)";
+            logger.finest(message);
+        }
+
+        private void startTag() {
+            state = NAME;
+            attribute.setLength(0);
+            attributeEnded = false;
+            endTag = false;
+            emptyTag = false;
+            secretElement = false;
+        }
+
+        // b is inside a tag, after its name
+        private void tag(int b) {
+            if (b == '>') {
+                inSecret = secretElement && !emptyTag;
+                lessThan = false;
+                masked = false;
+                state = TEXT;
+            } else if ((b == '"') || (b == '\'')) {
+                quote = (byte) b;
+                secretValue = isSecret(attribute.toString());
+                attribute.setLength(0);
+                attributeEnded = false;
+                masked = false;
+                state = VALUE;
+            } else if (b == '/') {
+                emptyTag = true;
+            } else if ((b == '=') || isSpace(b)) {
+                attributeEnded = (attribute.length() > 0);
+            } else {
+                if (attributeEnded) {
+                    attribute.setLength(0);
+                    attributeEnded = false;
+                }
+                attribute.append((char) b);
+            }
+            append(b);
+        }
+
+        private void mask() {
+            if (!masked) {
+                masked = true;
+                for (int i = 0; i < MASK.length; i++)
+                    append(MASK[i]);
+            }
+        }
+
+        private void append(int b) {
+            if ((maxBytes <= 0) || (bytes.size() < maxBytes))
+                bytes.write(b);
+            else
+                truncated = true;
+        }
+
+        private boolean isSpace(int b) {
+            return (b == ' ') || (b == '\t') || (b == '\r') || (b == '\n');
+        }
+    }
+}
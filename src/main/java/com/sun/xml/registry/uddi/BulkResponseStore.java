@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.uddi;
+
+import javax.xml.registry.*;
+
+import java.util.*;
+
+import com.sun.xml.registry.common.util.JAXRMetrics;
+
+/**
+ * Holds the responses of asynchronous requests until the client asks
+ * for them with RegistryService.getBulkResponse. The store is bounded
+ * by the number of responses and by the time a response may wait for
+ * its client, so responses nobody asks for do not pile up for the life
+ * of the connection. Responses are kept in the order they were stored,
+ * the oldest one is the first to expire and the first to be evicted.
+ */
+public class BulkResponseStore {
+
+    static final int DEFAULT_MAX_SIZE = 1000;
+    static final long DEFAULT_TIME_TO_LIVE = 600000;
+
+    // reasons passed to the eviction listener
+    public static final String EXPIRED = "expired";
+    public static final String SIZE = "size";
+    public static final String CLOSED = "closed";
+
+    /**
+     * Notified about responses that were dropped before the client
+     * retrieved them.
+     */
+    public interface EvictionListener {
+        void responseEvicted(String requestId, BulkResponse response,
+            String reason);
+    }
+
+    private final int maxSize;
+    private final long timeToLive;
+    // insertion ordered, guarded by itself
+    private final LinkedHashMap responses = new LinkedHashMap();
+    private volatile EvictionListener listener;
+
+    BulkResponseStore(int maxSize, long timeToLive) {
+        this.maxSize = Math.max(maxSize, 1);
+        this.timeToLive = timeToLive;
+    }
+
+    void setEvictionListener(EvictionListener listener) {
+        this.listener = listener;
+    }
+
+    void put(String requestId, BulkResponse response) {
+        List evicted = new ArrayList();
+        synchronized (responses) {
+            Entry old = (Entry) responses.put(requestId,
+                new Entry(response, System.currentTimeMillis()));
+            if (old == null)
+                JAXRMetrics.increment(JAXRMetrics.ASYNC_RESPONSES_PENDING);
+            purge(evicted);
+            while (responses.size() > maxSize) {
+                Iterator iter = responses.entrySet().iterator();
+                Map.Entry eldest = (Map.Entry) iter.next();
+                iter.remove();
+                JAXRMetrics.decrement(JAXRMetrics.ASYNC_RESPONSES_PENDING);
+                evicted.add(new Object[] {eldest.getKey(),
+                    ((Entry) eldest.getValue()).response, SIZE});
+            }
+        }
+        notifyListener(evicted);
+    }
+
+    /**
+     * Removes and returns the response, null if there is none
+     * or it expired.
+     */
+    BulkResponse remove(String requestId) {
+        List evicted = new ArrayList();
+        Entry entry;
+        synchronized (responses) {
+            purge(evicted);
+            entry = (Entry) responses.remove(requestId);
+            if (entry != null)
+                JAXRMetrics.decrement(JAXRMetrics.ASYNC_RESPONSES_PENDING);
+        }
+        notifyListener(evicted);
+        return (entry == null) ? null : entry.response;
+    }
+
+    int size() {
+        synchronized (responses) {
+            return responses.size();
+        }
+    }
+
+    /**
+     * Drops all responses, called when the connection is closed.
+     */
+    void clear() {
+        List evicted = new ArrayList();
+        synchronized (responses) {
+            Iterator iter = responses.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry next = (Map.Entry) iter.next();
+                evicted.add(new Object[] {next.getKey(),
+                    ((Entry) next.getValue()).response, CLOSED});
+            }
+            responses.clear();
+            JAXRMetrics.add(JAXRMetrics.ASYNC_RESPONSES_PENDING, -evicted.size());
+        }
+        notifyListener(evicted);
+    }
+
+    // drops expired responses from the head, must hold the lock
+    private void purge(List evicted) {
+        if (timeToLive <= 0)
+            return;
+        long expiredBefore = System.currentTimeMillis() - timeToLive;
+        Iterator iter = responses.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry eldest = (Map.Entry) iter.next();
+            Entry entry = (Entry) eldest.getValue();
+            if (entry.storedAt > expiredBefore)
+                break;
+            iter.remove();
+            JAXRMetrics.decrement(JAXRMetrics.ASYNC_RESPONSES_PENDING);
+            JAXRMetrics.increment(JAXRMetrics.ASYNC_RESPONSES_EXPIRED);
+            evicted.add(new Object[] {eldest.getKey(), entry.response, EXPIRED});
+        }
+    }
+
+    // called without holding the lock
+    private void notifyListener(List evicted) {
+        if (evicted.isEmpty())
+            return;
+        EvictionListener current = listener;
+        if (current == null)
+            return;
+        for (int i = 0; i < evicted.size(); i++) {
+            Object[] next = (Object[]) evicted.get(i);
+            current.responseEvicted((String) next[0], (BulkResponse) next[1],
+                (String) next[2]);
+        }
+    }
+
+    private static final class Entry {
+
+        final BulkResponse response;
+        final long storedAt;
+
+        Entry(BulkResponse response, long storedAt) {
+            this.response = response;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.sun.xml.registry.uddi;
 import com.sun.xml.registry.common.*;
 import com.sun.xml.registry.common.util.*;
 import javax.xml.registry.*;
+import java.util.concurrent.CompletionStage;
 import java.util.Collection;
 
 /**
@@ -339,5 +340,135 @@ public class BusinessLifeCycleManagerImpl extends LifeCycleManagerImpl
     throws JAXRException {        
         uddi.unConfirmAssociation(association);
     }
-	
+
+    /**
+     * @see #saveOrganizations
+     */
+    public CompletionStage saveOrganizationsAsync(Collection organizations)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.SaveOrganizationsCommand(service, response,
+                organizations));
+    }
+
+    /**
+     * @see #saveServices
+     */
+    public CompletionStage saveServicesAsync(Collection services)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.SaveServicesCommand(service, response, services));
+    }
+
+    /**
+     * @see #saveServiceBindings
+     */
+    public CompletionStage saveServiceBindingsAsync(Collection bindings)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.SaveServiceBindingsCommand(service, response,
+                bindings));
+    }
+
+    /**
+     * @see #saveConcepts
+     */
+    public CompletionStage saveConceptsAsync(Collection concepts)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.SaveConceptsCommand(service, response, concepts));
+    }
+
+    /**
+     * @see #saveClassificationSchemes
+     */
+    public CompletionStage saveClassificationSchemesAsync(Collection schemes)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.SaveClassificationSchemesCommand(service,
+                response, schemes));
+    }
+
+    /**
+     * @see #saveAssociations
+     */
+    public CompletionStage saveAssociationsAsync(Collection associations,
+            boolean replace)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.SaveAssociationsCommand(service, response,
+                associations, replace));
+    }
+
+    /**
+     * @see #deleteOrganizations
+     */
+    public CompletionStage deleteOrganizationsAsync(Collection organizationKeys)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.DeleteOrganizationsCommand(service, response,
+                organizationKeys));
+    }
+
+    /**
+     * @see #deleteServices
+     */
+    public CompletionStage deleteServicesAsync(Collection serviceKeys)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.DeleteServicesCommand(service, response,
+                serviceKeys));
+    }
+
+    /**
+     * @see #deleteServiceBindings
+     */
+    public CompletionStage deleteServiceBindingsAsync(Collection bindingKeys)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.DeleteServiceBindingsCommand(service, response,
+                bindingKeys));
+    }
+
+    /**
+     * @see #deleteConcepts
+     */
+    public CompletionStage deleteConceptsAsync(Collection conceptKeys)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.DeleteConceptsCommand(service, response,
+                conceptKeys));
+    }
+
+    /**
+     * @see #deleteClassificationSchemes
+     */
+    public CompletionStage deleteClassificationSchemesAsync(Collection schemeKeys)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.DeleteClassificationSchemesCommand(service,
+                response, schemeKeys));
+    }
+
+    /**
+     * @see #deleteAssociations
+     */
+    public CompletionStage deleteAssociationsAsync(Collection associationKeys)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.DeleteAssociationsCommand(service, response,
+                associationKeys));
+    }
 }
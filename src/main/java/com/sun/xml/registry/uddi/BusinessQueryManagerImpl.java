@@ -17,6 +17,7 @@
 package com.sun.xml.registry.uddi;
 
 import javax.xml.registry.*;
+import java.util.concurrent.CompletionStage;
 import javax.xml.registry.infomodel.*;
 import java.util.*;
 import com.sun.xml.registry.common.*;
@@ -257,6 +258,36 @@ public class BusinessQueryManagerImpl extends QueryManagerImpl implements Busine
                     classifications, externalIdentifiers, externalLinks);
         }
     }
+
+    /**
+     * Finds the concepts of a ClassificationScheme whose name or code
+     * (value) matches one of the name patterns, e.g. for type-ahead.
+     * For an internal scheme, one of the predefined taxonomies or those
+     * named by the com.sun.xml.registry.userTaxonomyFilenames property,
+     * or if scheme is null for all of them, the taxonomies held locally
+     * are searched through an index instead of the registry. A pattern
+     * without '%' then matches names and codes starting with it, and the
+     * best matches come first: equal names or codes, code prefixes, name
+     * prefixes, word starts, then other matches. At most maxRows concepts
+     * are returned if that property is set, the response is partial if
+     * there were more.
+     * Other schemes are not held locally and cannot be searched this way.
+     *
+     * @param scheme the scheme whose concepts are searched, or null
+     * @param findQualifiers exactNameMatch, sortByNameAsc and
+     * sortByNameDesc are honored for internal schemes
+     * @param namePatterns Collection of name patterns as Strings
+     *
+     * @return BulkResponse containing Collection of Concepts
+     * @exception InvalidRequestException if scheme is not internal
+     */
+    public BulkResponse findConcepts(ClassificationScheme scheme,
+            Collection findQualifiers, Collection namePatterns)
+            throws JAXRException {
+        if ((scheme != null) && !uddi.isDefinedScheme(scheme))
+            throw new InvalidRequestException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("BusinessQueryManagerImpl:Concepts_can_only_be_searched_in_internal_classification_schemes"));
+        return uddi.findConcepts(scheme, findQualifiers, namePatterns);
+    }
     
     
     /**
@@ -349,6 +380,102 @@ public class BusinessQueryManagerImpl extends QueryManagerImpl implements Busine
                     confirmedByOther, associationTypes);
         }
     }
-    
-}
 
+    /**
+     * @see #findOrganizations
+     */
+    public CompletionStage findOrganizationsAsync(Collection findQualifiers,
+            Collection namePatterns, Collection classifications,
+            Collection specifications, Collection identifiers,
+            Collection externalLinks)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.FindOrganizationsCommand(service, response,
+                findQualifiers, namePatterns, classifications,
+                specifications, identifiers, externalLinks));
+    }
+
+    /**
+     * @see #findServices
+     */
+    public CompletionStage findServicesAsync(Key orgKey,
+            Collection findQualifiers, Collection namePatterns,
+            Collection classifications, Collection specifications)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.FindServicesCommand(service, response, orgKey,
+                findQualifiers, namePatterns, classifications,
+                specifications));
+    }
+
+    /**
+     * @see #findServiceBindings
+     */
+    public CompletionStage findServiceBindingsAsync(Key serviceKey,
+            Collection findQualifiers, Collection classifications,
+            Collection specifications)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.FindServiceBindingsCommand(service, response,
+                serviceKey, findQualifiers, classifications, specifications));
+    }
+
+    /**
+     * @see #findClassificationSchemes
+     */
+    public CompletionStage findClassificationSchemesAsync(Collection findQualifiers,
+            Collection namePatterns, Collection classifications,
+            Collection externalLinks)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.FindClassificationSchemesCommand(service,
+                response, findQualifiers, namePatterns, classifications,
+                externalLinks));
+    }
+
+    /**
+     * @see #findConcepts
+     */
+    public CompletionStage findConceptsAsync(Collection findQualifiers,
+            Collection namePatterns, Collection classifications,
+            Collection externalIdentifiers, Collection externalLinks)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.FindConceptsCommand(service, response,
+                findQualifiers, namePatterns, classifications,
+                externalIdentifiers, externalLinks));
+    }
+
+    /**
+     * @see #findAssociations
+     */
+    public CompletionStage findAssociationsAsync(Collection findQualifiers,
+            String sourceObjectId, String targetObjectId,
+            Collection associationTypes)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.FindAssociationsCommand(service, response,
+                findQualifiers, sourceObjectId, targetObjectId,
+                associationTypes));
+    }
+
+    /**
+     * @see #findCallerAssociations
+     */
+    public CompletionStage findCallerAssociationsAsync(Collection findQualifiers,
+            Boolean confirmedByCaller, Boolean confirmedByOtherParty,
+            Collection associationTypes)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.FindCallerAssociationsCommand(service, response,
+                findQualifiers, confirmedByCaller, confirmedByOtherParty,
+                associationTypes));
+    }
+}
@@ -29,7 +29,10 @@ import java.security.PrivilegedAction;
 import javax.security.auth.*;
 import javax.security.auth.login.*;
 
+import com.sun.xml.registry.common.transport.TransportConfig;
+import com.sun.xml.registry.common.transport.TransportFactory;
 import com.sun.xml.registry.common.util.*;
+import com.sun.xml.registry.common.tools.JAXRConceptsManager;
 
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -56,12 +59,36 @@ public class ConnectionImpl implements Connection {
     static final String USE_SOAP = "com.sun.xml.registry.useSOAP";
     static final String USE_CACHE = "com.sun.xml.registry.useCache";
     static final String AUTH_TOKEN_TIMEOUT = "com.sun.xml.registry.authTokenTimeout";
+    static final String CACHE_MAX_ENTRIES = "com.sun.xml.registry.cache.maxEntries";
+    static final String CACHE_MAX_BYTES = "com.sun.xml.registry.cache.maxBytes";
+    // default time to live in milliseconds, can be refined per object
+    // type by appending the type, e.g. "...cache.timeToLive.Organization"
+    static final String CACHE_TIME_TO_LIVE = "com.sun.xml.registry.cache.timeToLive";
+    static final String TRANSPORT = "com.sun.xml.registry.transport";
+    static final String HTTP_MAX_CONNECTIONS_PER_ROUTE = "com.sun.xml.registry.http.maxConnectionsPerRoute";
+    static final String HTTP_CONNECT_TIMEOUT = "com.sun.xml.registry.http.connectTimeout";
+    static final String HTTP_READ_TIMEOUT = "com.sun.xml.registry.http.readTimeout";
+    static final String HTTP_COMPRESSION = "com.sun.xml.registry.http.compression";
+    static final String HTTP_COMPRESS_REQUESTS_ABOVE = "com.sun.xml.registry.http.compressRequestsAbove";
+    static final String FAST_INFOSET = "com.sun.xml.registry.fastInfoset";
+    static final String ASYNC_THREADS = "com.sun.xml.registry.async.threads";
+    static final String ASYNC_QUEUE_SIZE = "com.sun.xml.registry.async.queueSize";
+    static final String ASYNC_REJECTION_POLICY = "com.sun.xml.registry.async.rejectionPolicy";
+    static final String ASYNC_VIRTUAL_THREADS = "com.sun.xml.registry.async.virtualThreads";
+    static final String ASYNC_SHUTDOWN_TIMEOUT = "com.sun.xml.registry.async.shutdownTimeout";
+    static final String ASYNC_MAX_PENDING_RESPONSES = "com.sun.xml.registry.async.maxPendingResponses";
+    static final String ASYNC_RESPONSE_TIME_TO_LIVE = "com.sun.xml.registry.async.responseTimeToLive";
+    // start loading the taxonomy files when the connection is created
+    static final String TAXONOMY_PRELOAD = "com.sun.xml.registry.taxonomy.preload";
+    // directory of the memory-mapped stores of user defined taxonomies
+    static final String TAXONOMY_STORE_DIRECTORY = "com.sun.xml.registry.taxonomy.storeDirectory";
     static final long DEFAULT_TIMEOUT = 15000; 
 
     // used in JAXRConceptsManager
     public static final String USER_DEF_TAXONOMIES =
         "com.sun.xml.registry.userTaxonomyFilenames";
     String userDefinedTaxonomy;
+    String taxonomyStoreDirectory;
 
     Logger logger = (Logger)
 	AccessController.doPrivileged(new PrivilegedAction() {
@@ -96,12 +123,30 @@ public class ConnectionImpl implements Connection {
     private boolean useCache = true;
     private long timeout;
     private long timestamp;
+    private int cacheMaxEntries = UDDIObjectCache.DEFAULT_MAX_CACHE_SIZE;
+    private long cacheMaxBytes;
+    private long cacheTimeToLive;
+    private HashMap cacheTimeToLiveByType = new HashMap();
+    private String transportName;
+    private String proxyAuthorization;
+    private int asyncThreads = FuturesRequestManager.DEFAULT_THREADS;
+    private int asyncQueueSize = FuturesRequestManager.DEFAULT_QUEUE_SIZE;
+    private String asyncRejectionPolicy = FuturesRequestManager.CALLER_RUNS;
+    private boolean asyncVirtualThreads = false;
+    private long asyncShutdownTimeout = FuturesRequestManager.DEFAULT_SHUTDOWN_TIMEOUT;
+    private int asyncMaxPendingResponses = BulkResponseStore.DEFAULT_MAX_SIZE;
+    private long asyncResponseTimeToLive = BulkResponseStore.DEFAULT_TIME_TO_LIVE;
+    private FuturesRequestManager requestManager;
+    private TransportConfig transportConfig = new TransportConfig();
 
     private RegistryServiceImpl service;
     private HashMap equivalences;
     private boolean synchronous = true;
     private Locale locale;
     boolean isClosed = false;
+    // set once the asynchronous requests of a closing
+    // connection have drained, they still reach the registry
+    private volatile boolean released = false;
     //needs to be modified -TBD
     Set privateCredentials;
     
@@ -146,42 +191,15 @@ public class ConnectionImpl implements Connection {
 	proxyUserName = (String) properties.get(PROXY_USER_NAME);
 	proxyPassword = (String) properties.get(PROXY_PASSWORD);
 
-	// these will be overridden in RegistryService if proxies change
-	if (httpProxyHost != null) {
-	    final String fHttpHost = httpProxyHost;
-	    AccessController.doPrivileged(new PrivilegedAction() {
-		public Object run() {
-		    System.setProperty("http.proxyHost", fHttpHost);
-		    return null;
-		}
-	    });
-	}
-	if (httpProxyPort != null) {
-	    final String fHttpPort = httpProxyPort;
-	    AccessController.doPrivileged(new PrivilegedAction() {
-		public Object run() {
-		    System.setProperty("http.proxyPort", fHttpPort);
-		    return null;
-		}
-	    });
-	}
-	if (httpsProxyHost != null) {
-	    final String fHttpsHost = httpsProxyHost;
-	    AccessController.doPrivileged(new PrivilegedAction() {
-		public Object run() {
-		    System.setProperty("https.proxyHost", fHttpsHost);
-		    return null;
-		}
-	    });
-	}
-	if (httpsProxyPort != null) {
-	    final String fHttpsPort = httpsProxyPort;
-	    AccessController.doPrivileged(new PrivilegedAction() {
-		public Object run() {
-		    System.setProperty("https.proxyPort", fHttpsPort);
-		    return null;
-		}
-	    });
+	// proxies are kept per connection and handed to the transport,
+	// the JVM wide http.proxyHost/https.proxyHost are left alone
+	transportConfig.setHttpProxy(
+	    createProxy(HTTP_PROXY_PORT, httpProxyHost, httpProxyPort));
+	transportConfig.setHttpsProxy(
+	    createProxy(HTTPS_PROXY_PORT, httpsProxyHost, httpsProxyPort));
+	if ((proxyUserName != null) && (proxyPassword != null)) {
+	    proxyAuthorization = "Basic " + Base64.getEncoder().encodeToString(
+	        (proxyUserName + ":" + proxyPassword).getBytes());
 	}
         
          // check system first, then connection property
@@ -198,6 +216,10 @@ public class ConnectionImpl implements Connection {
         if ((propDefinedTaxonomy != null) && (!propDefinedTaxonomy.equals("")))
             userDefinedTaxonomy = propDefinedTaxonomy;
 
+        String storeDirectory = (String) properties.get(TAXONOMY_STORE_DIRECTORY);
+        if ((storeDirectory != null) && (!storeDirectory.equals("")))
+            taxonomyStoreDirectory = storeDirectory;
+
         // check system first, then connection property
         defaultPostalAddressScheme = (String)
 	    AccessController.doPrivileged(new PrivilegedAction() {
@@ -228,9 +250,132 @@ public class ConnectionImpl implements Connection {
 	} else
             timeout = DEFAULT_TIMEOUT;
 
+        String cacheEntriesString = (String) properties.get(CACHE_MAX_ENTRIES);
+        if (cacheEntriesString != null) {
+            cacheMaxEntries = (int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(CACHE_MAX_ENTRIES, cacheEntriesString));
+            if (cacheMaxEntries == 0)
+                cacheMaxEntries = UDDIObjectCache.DEFAULT_MAX_CACHE_SIZE;
+        }
+        String cacheBytesString = (String) properties.get(CACHE_MAX_BYTES);
+        if (cacheBytesString != null) {
+            cacheMaxBytes = parseLongProperty(CACHE_MAX_BYTES, cacheBytesString);
+        }
+        Iterator propIter = properties.keySet().iterator();
+        while (propIter.hasNext()) {
+            Object name = propIter.next();
+            if (!(name instanceof String) ||
+                !((String) name).startsWith(CACHE_TIME_TO_LIVE))
+                continue;
+            String ttlName = (String) name;
+            long ttl = parseLongProperty(ttlName, (String) properties.get(ttlName));
+            if (ttlName.equals(CACHE_TIME_TO_LIVE)) {
+                cacheTimeToLive = ttl;
+            } else if (ttlName.charAt(CACHE_TIME_TO_LIVE.length()) == '.') {
+                cacheTimeToLiveByType.put(
+                    ttlName.substring(CACHE_TIME_TO_LIVE.length() + 1), new Long(ttl));
+            }
+        }
+
+        transportName = (String) properties.get(TRANSPORT);
+        // the SOAPConnection of saaj cannot be given the proxies
+        // of the connection, only the JVM wide ones apply
+        if (TransportFactory.SAAJ.equalsIgnoreCase(transportName) &&
+            ((transportConfig.getHttpProxy() != null) ||
+            (transportConfig.getHttpsProxy() != null))) {
+            logger.warning(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConnectionImpl:Proxy_settings_are_ignored_by_the_saaj_transport"));
+        }
+        String maxConnectionsString = (String) properties.get(HTTP_MAX_CONNECTIONS_PER_ROUTE);
+        if (maxConnectionsString != null) {
+            int maxConnections = (int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(HTTP_MAX_CONNECTIONS_PER_ROUTE, maxConnectionsString));
+            if (maxConnections > 0)
+                transportConfig.setMaxConnectionsPerRoute(maxConnections);
+        }
+        String connectTimeoutString = (String) properties.get(HTTP_CONNECT_TIMEOUT);
+        if (connectTimeoutString != null) {
+            transportConfig.setConnectTimeout((int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(HTTP_CONNECT_TIMEOUT, connectTimeoutString)));
+        }
+        String readTimeoutString = (String) properties.get(HTTP_READ_TIMEOUT);
+        if (readTimeoutString != null) {
+            transportConfig.setReadTimeout((int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(HTTP_READ_TIMEOUT, readTimeoutString)));
+        }
+        String compressionString = (String) properties.get(HTTP_COMPRESSION);
+	if ((compressionString != null) && (compressionString.equalsIgnoreCase("true"))) {
+	    transportConfig.setCompression(true);
+	} 
+        String compressAboveString = (String) properties.get(HTTP_COMPRESS_REQUESTS_ABOVE);
+        if (compressAboveString != null) {
+            transportConfig.setCompressRequestsAbove((int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(HTTP_COMPRESS_REQUESTS_ABOVE, compressAboveString)));
+        }
+        String fastInfosetString = (String) properties.get(FAST_INFOSET);
+        if ((fastInfosetString != null) && (fastInfosetString.equalsIgnoreCase("true"))) {
+            try {
+                if (MarshallerUtil.getInstance().isFastInfosetAvailable())
+                    transportConfig.setFastInfoset(true);
+                else
+                    logger.warning(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConnectionImpl:Fast_Infoset_is_not_available,_using_XML"));
+            } catch (javax.xml.bind.JAXBException jbe) {
+                throw new JAXRException(jbe);
+            }
+        }
+
+        String asyncThreadsString = (String) properties.get(ASYNC_THREADS);
+        if (asyncThreadsString != null) {
+            int threads = (int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(ASYNC_THREADS, asyncThreadsString));
+            if (threads > 0)
+                asyncThreads = threads;
+        }
+        String asyncQueueString = (String) properties.get(ASYNC_QUEUE_SIZE);
+        if (asyncQueueString != null) {
+            int queueSize = (int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(ASYNC_QUEUE_SIZE, asyncQueueString));
+            if (queueSize > 0)
+                asyncQueueSize = queueSize;
+        }
+        String rejectionString = (String) properties.get(ASYNC_REJECTION_POLICY);
+        if (rejectionString != null) {
+            if (!rejectionString.equalsIgnoreCase(FuturesRequestManager.CALLER_RUNS) &&
+                !rejectionString.equalsIgnoreCase(FuturesRequestManager.ABORT)) {
+                throw new InvalidRequestException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConnectionImpl:Invalid_connection_property_value_") +
+                    ASYNC_REJECTION_POLICY + "=" + rejectionString);
+            }
+            asyncRejectionPolicy = rejectionString;
+        }
+        String virtualString = (String) properties.get(ASYNC_VIRTUAL_THREADS);
+	if ((virtualString != null) && (virtualString.equalsIgnoreCase("true"))) {
+	    asyncVirtualThreads = true;
+	} 
+        String shutdownString = (String) properties.get(ASYNC_SHUTDOWN_TIMEOUT);
+        if (shutdownString != null) {
+            asyncShutdownTimeout = parseLongProperty(ASYNC_SHUTDOWN_TIMEOUT, shutdownString);
+        }
+        String maxPendingString = (String) properties.get(ASYNC_MAX_PENDING_RESPONSES);
+        if (maxPendingString != null) {
+            int maxPending = (int) Math.min(Integer.MAX_VALUE,
+                parseLongProperty(ASYNC_MAX_PENDING_RESPONSES, maxPendingString));
+            if (maxPending > 0)
+                asyncMaxPendingResponses = maxPending;
+        }
+        String responseTTLString = (String) properties.get(ASYNC_RESPONSE_TIME_TO_LIVE);
+        if (responseTTLString != null) {
+            asyncResponseTimeToLive = parseLongProperty(ASYNC_RESPONSE_TIME_TO_LIVE, responseTTLString);
+        }
+
         subject = new Subject();
         service = new RegistryServiceImpl(this);
         connectionId = Utility.generateUUID();
+
+        // the taxonomies load in the background while the client sets
+        // its credentials, the first query using them waits for the rest
+        String preloadString = (String) properties.get(TAXONOMY_PRELOAD);
+	if ((preloadString == null) || (!preloadString.equalsIgnoreCase("false"))) {
+	    JAXRConceptsManager.getInstanceAsync(this);
+	} 
     }
     
     /**
@@ -258,14 +403,32 @@ public class ConnectionImpl implements Connection {
      */
     
     public void close() throws JAXRException {
+        FuturesRequestManager closingManager;
+        RegistryServiceImpl closingService;
         synchronized (this) {
-            if (!isClosed) {
-                if (logger.isLoggable(Level.FINEST)) {
-                    logger.finest("Closing UDDI connection" + this);
-                }
-                service = null;
-                isClosed = true;
+            if (isClosed) {
+                return;
+            }
+            if (logger.isLoggable(Level.FINEST)) {
+                logger.finest("Closing UDDI connection" + this);
             }
+            isClosed = true;
+            closingManager = requestManager;
+            requestManager = null;
+            closingService = service;
+            service = null;
+        }
+        // let pending asynchronous requests finish first, outside
+        // the lock so other threads see the closed connection
+        // instead of waiting for the drain
+        if (closingManager != null) {
+            closingManager.shutdown();
+        }
+        released = true;
+        if (closingService != null) {
+            closingService.clearBulkResponses();
+            closingService.getObjectManager().flushCache();
+            closingService.closeTransport();
         }
     }
     
@@ -282,7 +445,7 @@ public class ConnectionImpl implements Connection {
     
     /** gets the URL to the registry provider that is teh end point for this Connection */
     String getQueryManagerURL() throws JAXRException {
-        if (!isClosed) {
+        if (!released) {
             return queryManagerURLString;
         } else {
             throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConnectionImpl:Connection_is_Closed"));
@@ -291,7 +454,7 @@ public class ConnectionImpl implements Connection {
     
     /** gets the URL to the registry provider that is teh end point for this Connection */
     String getLifeCycleManagerURL() throws JAXRException {
-        if (!isClosed) {
+        if (!released) {
             return lifeCycleManagerURLString;
         } else {
             throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConnectionImpl:Connection_is_closed"));
@@ -376,6 +539,60 @@ public class ConnectionImpl implements Connection {
     String getMaxRows() {
         return maxRows;
     }
+
+    /**
+     * Internal method for getting the maximum number
+     * of objects held in the object cache.
+     */
+    int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    /**
+     * Internal method for getting the maximum estimated
+     * size in bytes of the object cache, 0 if unbounded.
+     */
+    long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    /**
+     * Internal method for getting the time in milliseconds an
+     * object of the given type, e.g. "Organization", stays in
+     * the object cache. Returns 0 if objects do not expire.
+     */
+    long getCacheTimeToLive(String type) {
+        Long ttl = (Long) cacheTimeToLiveByType.get(type);
+        if (ttl != null)
+            return ttl.longValue();
+        return cacheTimeToLive;
+    }
+
+    private Proxy createProxy(String portName, String host, String port)
+        throws InvalidRequestException {
+        if ((host == null) || host.equals("") || (port == null) || port.equals(""))
+            return null;
+        int portNumber = (int) Math.min(Integer.MAX_VALUE, parseLongProperty(portName, port));
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("proxy host = " + host);
+            logger.finest("proxy port = " + port);
+        }
+        return new Proxy(Proxy.Type.HTTP,
+            InetSocketAddress.createUnresolved(host, portNumber));
+    }
+
+    private long parseLongProperty(String name, String value)
+        throws InvalidRequestException {
+        try {
+            long result = Long.parseLong(value.trim());
+            if (result < 0)
+                throw new NumberFormatException(value);
+            return result;
+        } catch (NumberFormatException nfe) {
+            throw new InvalidRequestException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConnectionImpl:Invalid_connection_property_value_") +
+                name + "=" + value);
+        }
+    }
     
     /**
      * Return true if client uses synchronous communication with JAXR provider.
@@ -542,9 +759,63 @@ public class ConnectionImpl implements Connection {
     String getProxyPassword() {
 	return proxyPassword;
     }
+
+    /**
+     * Internal method for getting the name of the
+     * transport used to talk to the registry.
+     */
+    String getTransportName() {
+        return transportName;
+    }
+
+    TransportConfig getTransportConfig() {
+        return transportConfig;
+    }
+
+    /**
+     * Internal method for getting the executor of asynchronous
+     * requests, created on first use.
+     */
+    FuturesRequestManager getRequestManager() throws JAXRException {
+        synchronized (this) {
+            if (isClosed) {
+                throw new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConnectionImpl:Connection_is_closed"));
+            }
+            if (requestManager == null) {
+                requestManager = new FuturesRequestManager(asyncThreads,
+                    asyncQueueSize, asyncRejectionPolicy, asyncVirtualThreads,
+                    asyncShutdownTimeout);
+            }
+            return requestManager;
+        }
+    }
+
+    /**
+     * Internal methods for the bounds of the store of
+     * asynchronous responses.
+     */
+    int getAsyncMaxPendingResponses() {
+        return asyncMaxPendingResponses;
+    }
+
+    long getAsyncResponseTimeToLive() {
+        return asyncResponseTimeToLive;
+    }
+
+    /**
+     * Internal method for getting the value of the Proxy-Authorization
+     * header, null if no proxy credentials were given.
+     */
+    String getProxyAuthorization() {
+        return proxyAuthorization;
+    }
     public String getUserDefinedTaxonomy(){
         return userDefinedTaxonomy;
     }
+    
+    public String getTaxonomyStoreDirectory() {
+        return taxonomyStoreDirectory;
+    }
    
     /*
      * Internal method used for switching from jaxm 
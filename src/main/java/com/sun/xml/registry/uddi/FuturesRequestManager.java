@@ -19,29 +19,232 @@
  */
 package com.sun.xml.registry.uddi;
 
+import com.sun.xml.registry.common.BulkResponseImpl;
+import com.sun.xml.registry.common.util.JAXRMetrics;
+
+import javax.xml.registry.*;
+
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+
 /**
- * Current implementation simply spawns a thread for each
- * request that is made. Future work may pool threads or
- * use a worker thread to perform all requests serially.
+ * Runs the commands of asynchronous calls on an executor owned by
+ * the connection. By default this is a fixed size pool with a bounded
+ * queue; when the queue is full the calling thread either runs the
+ * command itself (back-pressure) or the call is rejected. On runtimes
+ * with virtual threads the connection can ask for one virtual thread
+ * per command instead. The executor is shut down when the connection
+ * is closed.
  */
-public class FuturesRequestManager implements Runnable {
+public class FuturesRequestManager {
+
+    Logger logger = (Logger)
+	AccessController.doPrivileged(new PrivilegedAction() {
+	    public Object run() {
+		return Logger.getLogger(com.sun.xml.registry.common.util.Utility.LOGGING_DOMAIN + ".uddi");
+	    }
+	});
+
+    static final String CALLER_RUNS = "callerRuns";
+    static final String ABORT = "abort";
+
+    static final int DEFAULT_THREADS =
+        Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    static final int DEFAULT_QUEUE_SIZE = 1000;
+    static final long DEFAULT_SHUTDOWN_TIMEOUT = 5000;
+    // idle pool threads exit so a forgotten connection does
+    // not keep the JVM alive
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private static final AtomicInteger poolNumber = new AtomicInteger();
 
-    private JAXRCommand jaxrCommand;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor pool;
+    private final boolean abortWhenFull;
+    private final long shutdownTimeout;
     
-    static void invokeCommand(JAXRCommand command) {
-        FuturesRequestManager manager = new FuturesRequestManager(command);
-        new Thread(manager).start();
+    /**
+     * Hands the command to the executor of its connection.
+     */
+    static void invokeCommand(JAXRCommand command) throws JAXRException {
+        command.service.getConnection().getRequestManager().submit(command);
     }
-    
-    private FuturesRequestManager(JAXRCommand command){
-        jaxrCommand = command;
+
+    FuturesRequestManager(int threads, int queueSize, String rejectionPolicy,
+        boolean useVirtualThreads, long shutdownTimeout) {
+        String prefix = "JAXR-async-" + poolNumber.incrementAndGet() + "-";
+        this.abortWhenFull = ABORT.equalsIgnoreCase(rejectionPolicy);
+        this.shutdownTimeout = shutdownTimeout;
+        ExecutorService virtualExecutor = null;
+        if (useVirtualThreads)
+            virtualExecutor = createVirtualThreadExecutor(prefix);
+        if (virtualExecutor != null) {
+            executor = virtualExecutor;
+            pool = null;
+        } else {
+            pool = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue(Math.max(queueSize, 1)),
+                new NamedThreadFactory(prefix),
+                new RejectionHandler());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("Created asynchronous executor " + prefix + 
+                ((pool == null) ? " using virtual threads" : " with " + threads + " threads"));
+        }
     }
-    
-    public void run() {
+
+    void submit(JAXRCommand command) throws JAXRException {
+        JAXRMetrics.increment(JAXRMetrics.ASYNC_SUBMITTED);
+        JAXRMetrics.increment(JAXRMetrics.ASYNC_QUEUED);
         try {
-            jaxrCommand.execute();
-        } catch (Throwable t) {
-            t.printStackTrace();
+            executor.execute(new CommandRunner(command));
+        } catch (RejectedExecutionException ree) {
+            JAXRMetrics.decrement(JAXRMetrics.ASYNC_QUEUED);
+            JAXRMetrics.increment(JAXRMetrics.ASYNC_REJECTED);
+            JAXRException je = new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("FuturesRequestManager:Asynchronous_request_rejected"), ree);
+            fail(command, je);
+            throw je;
         }
-    }    
+    }
+
+    /**
+     * Number of commands waiting for a thread, 0 when
+     * virtual threads are used.
+     */
+    int getQueueDepth() {
+        return (pool == null) ? 0 : pool.getQueue().size();
+    }
+
+    /**
+     * Stops accepting commands and waits for the running and
+     * queued ones to finish, at most for the shutdown timeout.
+     * Commands still queued after that are dropped and their
+     * responses fail.
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+                int dropped = drop(executor.shutdownNow());
+                logger.warning("Asynchronous requests still running after " +
+                    shutdownTimeout + " ms, " + dropped + " queued requests dropped");
+            }
+        } catch (InterruptedException ie) {
+            drop(executor.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int drop(List runners) {
+        Iterator iter = runners.iterator();
+        while (iter.hasNext()) {
+            drop((CommandRunner) iter.next());
+        }
+        return runners.size();
+    }
+
+    private void drop(CommandRunner runner) {
+        JAXRMetrics.decrement(JAXRMetrics.ASYNC_QUEUED);
+        fail(runner.jaxrCommand, new JAXRException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("FuturesRequestManager:Asynchronous_request_dropped,_connection_closed")));
+    }
+
+    // the client may be waiting on the response, so a failed
+    // command still has to complete it
+    private void fail(JAXRCommand command, JAXRException je) {
+        try {
+            BulkResponseImpl failed = new BulkResponseImpl();
+            failed.addException(je);
+            command.response.updateResponse(failed);
+        } catch (JAXRException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+        }
+    }
+
+    // Executors.newThreadPerTaskExecutor and Thread.ofVirtual are
+    // only available on Java 21 and later, look them up by reflection
+    private ExecutorService createVirtualThreadExecutor(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", new Class[] {String.class, long.class}).
+                invoke(builder, new Object[] {prefix, new Long(1)});
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                new Class[] {ThreadFactory.class});
+            return (ExecutorService) newExecutor.invoke(null, new Object[] {factory});
+        } catch (Exception e) {
+            logger.finest("Virtual threads not available, using a thread pool: " + e);
+            return null;
+        }
+    }
+
+    private class CommandRunner implements Runnable {
+
+        private final JAXRCommand jaxrCommand;
+
+        CommandRunner(JAXRCommand command) {
+            jaxrCommand = command;
+        }
+
+        public void run() {
+            JAXRMetrics.decrement(JAXRMetrics.ASYNC_QUEUED);
+            // cancelled by the client while waiting for a thread
+            if (!jaxrCommand.response.startRequest()) {
+                JAXRMetrics.increment(JAXRMetrics.ASYNC_CANCELLED);
+                return;
+            }
+            try {
+                jaxrCommand.execute();
+                JAXRMetrics.increment(JAXRMetrics.ASYNC_COMPLETED);
+            } catch (Throwable t) {
+                JAXRMetrics.increment(JAXRMetrics.ASYNC_FAILED);
+                logger.log(Level.SEVERE, t.getMessage(), t);
+                fail(jaxrCommand, (t instanceof JAXRException) ?
+                    (JAXRException) t : new JAXRException(t));
+            }
+        }
+    }
+
+    // a full queue makes the caller run the command or rejects
+    // it, a command arriving after shutdown fails right away
+    private class RejectionHandler implements RejectedExecutionHandler {
+
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                drop((CommandRunner) r);
+            } else if (abortWhenFull) {
+                throw new RejectedExecutionException("Task " + r +
+                    " rejected from " + executor);
+            } else {
+                r.run();
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + threadNumber.incrementAndGet());
+            t.setDaemon(false);
+            return t;
+        }
+    }
 }
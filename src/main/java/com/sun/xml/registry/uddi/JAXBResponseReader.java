@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.xml.registry.uddi;
+
+import com.sun.xml.registry.common.transport.StreamingTransport;
+import com.sun.xml.registry.common.util.MarshallerUtil;
+import com.sun.xml.registry.common.util.WireLog;
+
+import org.w3c.dom.*;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.soap.SOAPBody;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Reads a registry reply into the JAXB object of the first element of
+ * its SOAP body or, for a fault, of the dispositionReport in it. A
+ * plain XML or Fast Infoset reply is read with StAX from the
+ * transport's stream and only the element unmarshalled is ever built,
+ * the rest of the envelope is skipped. Replies parsed by SAAJ are read
+ * from the DOM. A reader created with a WireLog logs the XML replies
+ * it reads.
+ */
+class JAXBResponseReader implements StreamingTransport.ResponseReader {
+
+    static final String DISPOSITION_REPORT = "dispositionReport";
+    private static final String BODY = "Body";
+    private static final String FAULT = "Fault";
+    private static final String FAULT_STRING = "faultstring";
+    // depth of the Body element, the Envelope is at 1
+    private static final int BODY_DEPTH = 2;
+
+    private final WireLog wireLog;
+
+    JAXBResponseReader() {
+        this(null);
+    }
+
+    JAXBResponseReader(WireLog wireLog) {
+        this.wireLog = wireLog;
+    }
+
+    public Object read(InputStream in, String contentType)
+        throws SOAPException, IOException {
+        boolean fastInfoset = (contentType != null) &&
+            (contentType.toLowerCase(Locale.ENGLISH).indexOf("fastinfoset") != -1);
+        // Fast Infoset replies are binary, not for the log
+        if ((wireLog == null) || fastInfoset)
+            return readStream(in, fastInfoset);
+        WireLog.Capture capture = wireLog.newCapture();
+        try {
+            InputStream tee = capture.tee(in);
+            Object result = readStream(tee, false);
+            // the rest of the envelope belongs in the log too
+            byte[] buffer = new byte[512];
+            while (tee.read(buffer) != -1)
+                ;
+            return result;
+        } finally {
+            capture.close();
+        }
+    }
+
+    private Object readStream(InputStream in, boolean fastInfoset)
+        throws SOAPException, IOException {
+        try {
+            XMLStreamReader reader = fastInfoset ?
+                MarshallerUtil.getInstance().createFastInfosetStreamReader(in) :
+                MarshallerUtil.getInstance().createXMLStreamReader(in);
+            try {
+                return read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new SOAPException(e.getMessage(), e);
+        } catch (JAXBException e) {
+            throw new SOAPException(e.getMessage(), e);
+        }
+    }
+
+    private Object read(XMLStreamReader reader)
+        throws SOAPException, XMLStreamException, JAXBException {
+        int depth = 0;
+        boolean inBody = false;
+        boolean inFault = false;
+        String faultString = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                if (inBody && depth < BODY_DEPTH)
+                    break;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+            depth++;
+            String name = reader.getLocalName();
+            if (!inBody) {
+                inBody = (depth == BODY_DEPTH) && name.equals(BODY);
+            } else if (depth == BODY_DEPTH + 1 && name.equals(FAULT)) {
+                inFault = true;
+            } else if (!inFault || name.equals(DISPOSITION_REPORT)) {
+                // leaves the reader on the end tag
+                return MarshallerUtil.getInstance().jaxbUnmarshalReader(reader);
+            } else if (name.equals(FAULT_STRING)) {
+                faultString = reader.getElementText();
+                depth--;
+            }
+        }
+        if (inFault)
+            throw new SOAPException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("JAXBResponseReader:SOAP_fault:_") + faultString);
+        throw new SOAPException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("JAXBResponseReader:Empty_SOAP_body"));
+    }
+
+    public Object read(SOAPMessage reply) throws SOAPException {
+        if (wireLog != null)
+            wireLog.log(reply);
+        return read(reply.getSOAPBody());
+    }
+
+    /**
+     * Unmarshals the first child element of the body or the
+     * dispositionReport of a fault.
+     */
+    Object read(SOAPBody body) throws SOAPException {
+        Node resultNode = null;
+        if (body.hasFault()) {
+            NodeList list = body.getElementsByTagName(DISPOSITION_REPORT);
+            if ((list != null) && (list.getLength() > 0))
+                resultNode = list.item(0);
+            if (resultNode == null)
+                throw new SOAPException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("JAXBResponseReader:SOAP_fault:_") +
+                    body.getFault().getFaultString());
+        } else {
+            // skip the whitespace of pretty printed replies
+            resultNode = body.getFirstChild();
+            while ((resultNode != null) &&
+                (resultNode.getNodeType() != Node.ELEMENT_NODE))
+                resultNode = resultNode.getNextSibling();
+        }
+        if (resultNode == null)
+            throw new SOAPException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("JAXBResponseReader:Empty_SOAP_body"));
+        try {
+            return MarshallerUtil.getInstance().jaxbUnmarshalObject(resultNode);
+        } catch (JAXBException e) {
+            throw new SOAPException(e.getMessage(), e);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.sun.xml.registry.common.util.*;
 import com.sun.xml.registry.uddi.infomodel.*;
 import java.util.*;
 import javax.xml.registry.*;
+import java.util.concurrent.CompletionStage;
 import javax.xml.registry.infomodel.*;
 
 /**
@@ -647,5 +648,27 @@ public class LifeCycleManagerImpl implements LifeCycleManager {
     javax.activation.DataHandler repositoryItem) throws JAXRException {
         throw new UnsupportedCapabilityException();
     }
-    
+
+    /**
+     * @see #saveObjects
+     */
+    public CompletionStage saveObjectsAsync(Collection cataloguedObjects)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.SaveObjectsCommand(service, response,
+                cataloguedObjects));
+    }
+
+    /**
+     * @see #deleteObjects
+     */
+    public CompletionStage deleteObjectsAsync(Collection keys,
+            String objectType)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.DeleteObjectsCommand(service, response, keys,
+                objectType));
+    }
 }
@@ -25,13 +25,9 @@ import com.sun.xml.registry.uddi.*;
 import com.sun.xml.registry.common.BulkResponseImpl;
 import com.sun.xml.registry.uddi.*;
 import com.sun.xml.registry.common.util.XMLUtil;
-import com.sun.xml.registry.common.util.MarshallerUtil;
 
 import org.w3c.dom.*;
 
-import javax.xml.bind.JAXBException;
-import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPMessage;
 
 import java.lang.*;
 import java.security.AccessController;
@@ -68,71 +64,30 @@ public class Processor {
 
     BulkResponse processRequestJAXB(Object obj, boolean secure, Collection keys, String type)
             throws JAXRException {
-        SOAPMessage doc = null;
-        try {
-            doc = MarshallerUtil.getInstance().jaxbMarshalObject(obj);
-        } catch (JAXBException jbe) {
-            throw new JAXRException(jbe);
-        }
-        return processResponseJAXB(service.send(doc, secure), keys, type);
+        return processResponseJAXB(service.sendJAXB(obj, secure), keys, type);
     }
 
      /**
      *
-     * DOM Element response from UDDI Invocation is instantiated to
-     * UDDI Object and passed to toBulkResponse method that will
-     * perform Transformation of UDDI Object to JAXR Collection
-     * of Objects returned via JAXR BulkResponse
+     * UDDI Object response from UDDI Invocation, the content of the
+     * SOAP body or the dispositionReport of a fault, is passed to
+     * toBulkResponse method that will perform Transformation of UDDI
+     * Object to JAXR Collection of Objects returned via JAXR BulkResponse
      *
-     * @param		response		DOM Element response from UDDI Invocation
+     * @param		response		UDDI Object response from UDDI Invocation
      * @return		BulkResponse	Collection of JAXR Objects return
      * @exception	JAXRException
      *
      */
-    BulkResponse processResponseJAXB(Node response, Collection keys, String type)
+    BulkResponse processResponseJAXB(Object response, Collection keys, String type)
              throws JAXRException {
 
          BulkResponse bulkResponse = null;
          if (response == null)
              return null;
 
-         Node resultNode = null;
-
-         String name = response.getNodeName();
-         
-
-         if (((SOAPBody) response).hasFault()) {
-             
-             if (response instanceof Element) {
-                 NodeList list = ((Element) response).getElementsByTagName("dispositionReport");
-                 if (list != null) {
-                     int listLength = list.getLength();
-                     if (listLength > 0) {
-
-                         for (int i = 0; i < listLength; i++) {
-                             Node n = list.item(i);
-                             if (n != null) {
-                                 resultNode = n;
-                                 name = "dispositionReport";
-                                 break;
-                             }
-                         }
-                     }
-                 }
-             }
-         } else 
-             resultNode = response.getFirstChild();
-
-         logger.finest("Node name " + name);
-
-         try {
-             Object obj = MarshallerUtil.getInstance().jaxbUnmarshalObject(resultNode);
-             logger.finest("Class name " + obj.getClass().getName());
-             bulkResponse = invokeMethod(obj, keys, type);
-         } catch (JAXBException jbe) {
-             
-             throw new JAXRException(jbe);
-         }
+         logger.finest("Class name " + response.getClass().getName());
+         bulkResponse = invokeMethod(response, keys, type);
 
          if (bulkResponse == null) {
              
@@ -21,6 +21,7 @@ import com.sun.xml.registry.common.util.*;
 import java.util.Collection;
 import java.util.Locale;
 import javax.xml.registry.*;
+import java.util.concurrent.CompletionStage;
 import javax.xml.registry.infomodel.RegistryObject;
 
 
@@ -135,4 +136,37 @@ public class QueryManagerImpl implements QueryManager {
     public RegistryService getRegistryService(){
         return service;
     }
+
+    /**
+     * @see #getRegistryObjects()
+     */
+    public CompletionStage getRegistryObjectsAsync()
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.GetRegistryObjectsCommand(service, response));
+    }
+
+    /**
+     * @see #getRegistryObjects(String)
+     */
+    public CompletionStage getRegistryObjectsAsync(String objectType)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.GetRegistryObjectsByTypeCommand(service,
+                response, objectType));
+    }
+
+    /**
+     * @see #getRegistryObjects(Collection, String)
+     */
+    public CompletionStage getRegistryObjectsAsync(Collection ids,
+            String type)
+            throws JAXRException {
+        BulkResponseImpl response = service.createPendingResponse();
+        return service.invokeAsync(
+            new JAXRCommand.GetRegistryObjectsByKeysCommand(service,
+                response, ids, type));
+    }
 }
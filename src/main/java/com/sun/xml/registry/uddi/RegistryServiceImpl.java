@@ -20,6 +20,8 @@ import javax.xml.registry.*;
 import javax.xml.registry.infomodel.*;
 
 import java.util.*;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.*;
 import java.net.*;
 import java.security.Security;
@@ -34,6 +36,8 @@ import javax.xml.transform.*;
 import javax.xml.transform.dom.*;
 import javax.xml.transform.stream.*;
 
+import com.sun.xml.registry.common.BulkResponseImpl;
+import com.sun.xml.registry.common.transport.*;
 import com.sun.xml.registry.common.util.*;
 
 import org.w3c.dom.Element;
@@ -68,8 +72,8 @@ public class RegistryServiceImpl implements RegistryService {
     private BulkResponse bulkResponse;
     private UDDIMapper uddiMapper;
     private String serviceId;
-    private UDDIObjectCache objectManager;
-    private HashMap bulkResponses;
+    private final UDDIObjectCache objectManager;
+    private final BulkResponseStore bulkResponses;
     private XMLUtil xmlUtil;
     
     private boolean securitySet;
@@ -77,16 +81,24 @@ public class RegistryServiceImpl implements RegistryService {
     private HashMap equivalentConcepts;
     private String defaultPostalSchemeId;
     
+    private final Object transportLock = new Object();
+    private RegistryTransport transport;
+    private final JAXBResponseReader responseReader = new JAXBResponseReader();
+    private final Map urls = new ConcurrentHashMap();
+    
     RegistryServiceImpl(ConnectionImpl connection) {
         securitySet = false;
-        bulkResponses = new HashMap();
         equivalentConcepts = new HashMap();
         this.connection = connection;
+        bulkResponses = new BulkResponseStore(
+            connection.getAsyncMaxPendingResponses(),
+            connection.getAsyncResponseTimeToLive());
         
         serviceId = Utility.generateUUID();
         xmlUtil = XMLUtil.getInstance();
+        //one cache per connection, must exist before any mapper
+        objectManager = new UDDIObjectCache(this);
         uddiMapper = new UDDIMapper(this); //needs to be initialized here
-        objectManager = uddiMapper.getObjectManager();
         
     }
     
@@ -101,8 +113,6 @@ public class RegistryServiceImpl implements RegistryService {
     }
     
     public UDDIObjectCache getObjectManager() {
-        if (objectManager == null)
-            objectManager = uddiMapper.getObjectManager();
         return objectManager;
     }
     
@@ -238,7 +248,8 @@ public class RegistryServiceImpl implements RegistryService {
     
     
     /**
-     * Store responses for asynchronous calls.
+     * Store responses for asynchronous calls. Responses that are
+     * not retrieved in time are dropped, see BulkResponseStore.
      *
      * @param response The BulkResponse to store.
      */
@@ -259,18 +270,67 @@ public class RegistryServiceImpl implements RegistryService {
      * Throws JAXRException if no responses exist for specified requestId.
      */
     public BulkResponse getBulkResponse(String requestId) throws JAXRException {
-        Object response = bulkResponses.remove(requestId);
+        BulkResponse response = bulkResponses.remove(requestId);
         if (response == null) {
             throw new InvalidRequestException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("RegistryServiceImpl:No_response_exists_for_specified_requestId"));
         }
-        return (BulkResponse) response;
+        return response;
+    }
+    
+    /**
+     * Sets the listener notified about asynchronous responses that
+     * expired or were evicted before the client retrieved them.
+     */
+    public void setBulkResponseEvictionListener(
+        BulkResponseStore.EvictionListener listener) {
+        bulkResponses.setEvictionListener(listener);
+    }
+    
+    // drops the responses nobody asked for, called on close
+    void clearBulkResponses() {
+        bulkResponses.clear();
     }
     
     
+    /**
+     * Creates the unavailable response an asynchronous command
+     * will complete.
+     */
+    BulkResponseImpl createPendingResponse() throws JAXRException {
+        BulkResponseImpl response = new BulkResponseImpl();
+        response.setStatus(JAXRResponse.STATUS_UNAVAILABLE);
+        response.setRequestId(Utility.getInstance().generateUUID());
+        return response;
+    }
+
+    /**
+     * Runs the command on the request manager of the connection and
+     * returns a stage that completes with its BulkResponse. This is
+     * the contract of all the *Async methods of the life cycle and
+     * query managers, whether or not the connection is synchronous:
+     * <ul>
+     * <li>Unlike the responses of asynchronous connections the response
+     * is not stored, the caller owns the returned stage.</li>
+     * <li>A failed request still completes the stage with its
+     * BulkResponse, the exceptions are in getExceptions(). Only a
+     * closed connection or a rejected request throws JAXRException
+     * right away.</li>
+     * <li>Cancelling the stage's future before the request was sent
+     * skips it and fails the BulkResponse. Once sent the request still
+     * reaches the registry: the stage completes with a
+     * CancellationException, and the BulkResponse, if the caller kept
+     * it, still gets the registry's result.</li>
+     * </ul>
+     */
+    CompletionStage invokeAsync(JAXRCommand command) throws JAXRException {
+        FuturesRequestManager.invokeCommand(command);
+        return command.response.getCompletableFuture();
+    }
+
     public ConnectionImpl getConnection() {
         return connection;
     }
-    
+
     
     public SOAPBody jaxmSend(SOAPMessage msg, boolean secure) throws JAXRException {
         
@@ -279,111 +339,16 @@ public class RegistryServiceImpl implements RegistryService {
         SOAPBody resultNode = null;
         try {
             
-            // add proxy info if needed
-            final String proxyHost = getConnection().getHttpProxyHost();
-            final String proxyPort = getConnection().getHttpProxyPort();
-            final String proxyUserName = getConnection().getProxyUserName();
-            final String proxyPassword = getConnection().getProxyPassword();
-            final String sslProxyHost = getConnection().getHttpsProxyHost();
-            final String sslProxyPort = getConnection().getHttpsProxyPort();
-            
-            if ((proxyHost != null) && (!proxyHost.equals("")) &&
-                    (proxyPort != null) && (!proxyPort.equals(""))) {
-                
-                AccessController.doPrivileged(new PrivilegedAction() {
-                    public Object run() {
-                        Properties sysProps = System.getProperties();
-                        sysProps.put("http.proxyHost", proxyHost);
-                        sysProps.put("http.proxyPort", proxyPort);
-                        return null;
-                    }
-                });
-                
-                if (logger.isLoggable(Level.FINEST)) {
-                    logger.finest("proxy host = " + proxyHost);
-                    logger.finest("proxy port = " + proxyPort);
-                }
-            }
-            
-            
-            if ((sslProxyHost != null) && (!sslProxyHost.equals("")) &&
-                    (sslProxyPort != null) && (!sslProxyPort.equals(""))) {
-                AccessController.doPrivileged(new PrivilegedAction() {
-                    public Object run() {
-                        Properties sysProps = System.getProperties();
-                        sysProps.put("https.proxyHost", sslProxyHost);
-                        sysProps.put("https.proxyPort", sslProxyPort);
-                        return null;
-                    }
-                });
-                
-                if (logger.isLoggable(Level.FINEST)) {
-                    logger.finest("https proxy host = " + sslProxyHost);
-                    logger.finest("https proxy port = " + sslProxyPort);
-                }
-            }
-            
-            
-            final SOAPConnectionFactory scf = (SOAPConnectionFactory)
-            AccessController.doPrivileged(new PrivilegedAction() {
-                public Object run() {
-                    try {
-                        return SOAPConnectionFactory.newInstance();
-                    } catch (javax.xml.soap.SOAPException se) {
-                        se.printStackTrace();
-                    }
-                    return null;
-                }
-            });
-            
-            SOAPConnection soapConnection = (SOAPConnection)
-            AccessController.doPrivileged(new PrivilegedAction() {
-                public Object run() {
-                    try {
-                        return scf.createConnection();
-                    } catch (javax.xml.soap.SOAPException se) {
-                        se.printStackTrace();
-                    }
-                    return null;
-                }
-            });
-            
-            // add proxy authentication info if needed
-            if ((proxyUserName != null) && (proxyPassword != null)) {
-                final String fProxyUserName = proxyUserName;
-                final String fProxyPassword = proxyPassword;
-                String authentication = (String)
-                AccessController.doPrivileged(new PrivilegedAction() {
-                    public Object run() {
-                        return "Basic " +
-                                Base64.getEncoder().encodeToString((fProxyUserName + ":" + fProxyPassword).getBytes());
-                    }
-                });
-                msg.getMimeHeaders().setHeader("Proxy-Authorization", authentication);
-            }
-            
-            // using 'secure' to determine url
-            String urlString = null;
-            if (secure) {
-                if (!securitySet) {
-                    securitySet = true;
-                }
-                
-                urlString = connection.getLifeCycleManagerURL();
-                //n"Using LifeCycle url");
-            } else {
-                urlString = connection.getQueryManagerURL();
-                
-            }
-            msg.saveChanges();
+            URL url = prepareRequest(msg, secure);
+            boolean logged = WireLog.getInstance().sample();
+            if (logged)
+                WireLog.getInstance().log(msg);
             // make the call
-            MarshallerUtil.getInstance().log(msg);
-            URL url = new URL(urlString);
-            SOAPMessage reply = soapConnection.call(msg, url);
+            SOAPMessage reply = getTransport().call(msg, url);
             
-            MarshallerUtil.getInstance().log(reply);
+            if (logged)
+                WireLog.getInstance().log(reply);
             resultNode = reply.getSOAPBody();
-            soapConnection.close();
             
         } catch (Exception e) {
             
@@ -395,6 +360,115 @@ public class RegistryServiceImpl implements RegistryService {
         return resultNode;
     }
     
+    /**
+     * Sends the JAXB request and returns the JAXB object of the reply,
+     * the first element of its body or the dispositionReport of a fault.
+     * If the transport can stream, the request is marshalled straight
+     * into the envelope it is sent in, and the reply is unmarshalled as
+     * it is read instead of being parsed into a SAAJ message first.
+     * Both are logged as they are written and read if the exchange is
+     * sampled by the WireLog.
+     */
+    Object sendJAXB(Object request, boolean secure) throws JAXRException {
+        
+        try {
+            RegistryTransport transport = getTransport();
+            if (!(transport instanceof StreamingTransport)) {
+                SOAPMessage msg = MarshallerUtil.getInstance().jaxbMarshalObject(request);
+                return responseReader.read((SOAPBody) send(msg, secure));
+            }
+            SOAPRequest soapRequest = new SOAPRequest(request);
+            try {
+                String proxyAuthorization = getConnection().getProxyAuthorization();
+                if (proxyAuthorization != null)
+                    soapRequest.setHeader("Proxy-Authorization", proxyAuthorization);
+                StreamingTransport.ResponseReader reader = responseReader;
+                WireLog wireLog = WireLog.getInstance();
+                if (wireLog.sample()) {
+                    WireLog.Capture capture = wireLog.newCapture();
+                    soapRequest.writeTo(capture);
+                    capture.close();
+                    reader = new JAXBResponseReader(wireLog);
+                }
+                return ((StreamingTransport) transport).call(soapRequest,
+                    getEndpoint(secure), reader);
+            } finally {
+                soapRequest.release();
+            }
+        } catch (JAXRException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.log(Level.FINEST, e.getMessage(), e);
+            throw new JAXRException(e);
+        }
+    }
+    
+    // sets the headers of the message and returns the url to send to
+    private URL prepareRequest(SOAPMessage msg, boolean secure)
+    throws JAXRException, SOAPException, MalformedURLException {
+        
+        // add proxy authentication info if needed, the proxies
+        // themselves are part of the connection's transport config
+        String proxyAuthorization = getConnection().getProxyAuthorization();
+        if (proxyAuthorization != null)
+            msg.getMimeHeaders().setHeader("Proxy-Authorization", proxyAuthorization);
+        
+        msg.saveChanges();
+        return getEndpoint(secure);
+    }
+    
+    // using 'secure' to determine url
+    private URL getEndpoint(boolean secure)
+    throws JAXRException, MalformedURLException {
+        
+        String urlString = null;
+        if (secure) {
+            if (!securitySet) {
+                securitySet = true;
+            }
+            
+            urlString = connection.getLifeCycleManagerURL();
+            //n"Using LifeCycle url");
+        } else {
+            urlString = connection.getQueryManagerURL();
+            
+        }
+        return getURL(urlString);
+    }
+    
+    
+    /**
+     * Returns the transport of this connection, creating
+     * it on first use.
+     */
+    RegistryTransport getTransport() throws IOException {
+        synchronized (transportLock) {
+            if (transport == null) {
+                transport = TransportFactory.createTransport(
+                    connection.getTransportName(), connection.getTransportConfig());
+            }
+            return transport;
+        }
+    }
+    
+    void closeTransport() {
+        synchronized (transportLock) {
+            if (transport != null) {
+                transport.close();
+                transport = null;
+            }
+        }
+    }
+    
+    // the query and life cycle urls do not change, parse them once
+    private URL getURL(String urlString) throws MalformedURLException {
+        URL url = (URL) urls.get(urlString);
+        if (url == null) {
+            url = new URL(urlString);
+            urls.put(urlString, url);
+        }
+        return url;
+    }
     
     /**
      * Currently, default is to use jaxm. Can use soap4j by
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2007, 2019 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.xml.registry.uddi;
+
+import com.sun.xml.registry.common.transport.StreamingTransport;
+import com.sun.xml.registry.common.util.MarshallerUtil;
+
+import javax.xml.bind.JAXBException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A request marshalled from its JAXB object straight into a SOAP
+ * envelope in a byte buffer, without a SAAJ message or DOM. The
+ * envelope is XML or, if the transport asks for it, Fast Infoset, and
+ * is written the first time it is needed. Buffers are pooled; release
+ * must be called once the request is sent.
+ */
+class SOAPRequest implements StreamingTransport.RequestWriter {
+
+    private static final int POOL_SIZE = 16;
+    // larger buffers are not kept, one big save should not pin its
+    // memory for the life of the process
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024;
+    private static final BlockingQueue buffers = new ArrayBlockingQueue(POOL_SIZE);
+
+    private final Object obj;
+    private final HashMap headers = new HashMap();
+    private Buffer buffer;
+    private boolean fastInfoset;
+    // the buffer holds the request in the current encoding
+    private boolean written;
+
+    SOAPRequest(Object obj) {
+        this.obj = obj;
+        buffer = (Buffer) buffers.poll();
+        if (buffer == null)
+            buffer = new Buffer();
+    }
+
+    void setHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    public Map getHeaders() {
+        return headers;
+    }
+
+    public void setFastInfoset(boolean fastInfoset) {
+        if (fastInfoset != this.fastInfoset) {
+            this.fastInfoset = fastInfoset;
+            written = false;
+        }
+    }
+
+    public int getLength() throws IOException {
+        write();
+        return buffer.size();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        write();
+        buffer.writeTo(out);
+    }
+
+    private void write() throws IOException {
+        if (written)
+            return;
+        buffer.reset();
+        try {
+            if (fastInfoset)
+                MarshallerUtil.getInstance().jaxbMarshalFastInfosetEnvelope(obj, buffer);
+            else
+                MarshallerUtil.getInstance().jaxbMarshalEnvelope(obj, buffer);
+        } catch (JAXBException e) {
+            IOException ioe = new IOException(e.getMessage());
+            ioe.initCause(e);
+            throw ioe;
+        }
+        written = true;
+    }
+
+    void release() {
+        if (buffer == null)
+            return;
+        if (buffer.capacity() <= MAX_POOLED_CAPACITY) {
+            buffer.reset();
+            // dropped if the pool is full
+            buffers.offer(buffer);
+        }
+        buffer = null;
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(4096);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
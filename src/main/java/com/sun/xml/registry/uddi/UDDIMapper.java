@@ -78,7 +78,7 @@ public class UDDIMapper extends JAXRConstants{
     private UDDIObjectCache objectManager = null;
     private RegistryServiceImpl service = null;
     private ConnectionImpl connection = null;
-    private static JAXRConceptsManager manager = null;
+    private JAXRConceptsManager manager = null;
     
     private Collection fromKeysOwned;
     private Collection toKeysOwned;
@@ -105,9 +105,9 @@ public class UDDIMapper extends JAXRConstants{
      */
     public UDDIMapper(RegistryService service) {
         this.service = (RegistryServiceImpl) service;
-        //objectManager needs creation in Constructor
-        this.objectManager =
-                new UDDIObjectCache((RegistryServiceImpl)service);
+        //cache is owned by the service and shared by all of its
+        //mappers, including those of asynchronous commands
+        this.objectManager = this.service.getObjectManager();
         this.xmlUtil = XMLUtil.getInstance();
         try {
             marshallerUtil = marshallerUtil.getInstance();
@@ -126,10 +126,10 @@ public class UDDIMapper extends JAXRConstants{
     
     
     private void initJAXBObjectFactory(){
-        // create a JAXBContext
+        // the JAXBContext is built once per process by MarshallerUtil
         try {
             if (jc == null)
-                jc = JAXBContext.newInstance( "com.sun.xml.registry.uddi.bindings_v2_2" );
+                jc = MarshallerUtil.getInstance().getJAXBContext();
         } catch (JAXBException jbe){
             logger.log(Level.SEVERE, "Exiting unable to initial JAXB context", jbe);
             System.exit(1);
@@ -926,6 +926,35 @@ public class UDDIMapper extends JAXRConstants{
         return null;
     }
     
+    /**
+     * Finds the concepts of a predefined or user defined scheme, or of
+     * all of them if scheme is null, by name or code in the taxonomies
+     * held locally. The registry is not asked. If the connection has
+     * maxRows set the response is partial when there were more matches.
+     */
+    BulkResponse findConcepts(ClassificationScheme scheme,
+            Collection findQualifiers, Collection namePatterns)
+            throws JAXRException {
+        
+        int rows = 0;
+        String maxrows = this.getConnection().getMaxRows();
+        if (maxrows != null)
+            rows = Integer.parseInt(maxrows);
+        List concepts = getConceptsManager().findConcepts(scheme,
+                findQualifiers, namePatterns, (rows > 0) ? rows + 1 : 0);
+        BulkResponseImpl response = new BulkResponseImpl();
+        if ((rows > 0) && (concepts.size() > rows)) {
+            concepts = new ArrayList(concepts.subList(0, rows));
+            response.setPartialResponse(true);
+        }
+        response.setCollection(concepts);
+        return response;
+    }
+    
+    boolean isDefinedScheme(ClassificationScheme scheme) throws JAXRException {
+        return getConceptsManager().isDefinedScheme(scheme);
+    }
+    
     public Collection getChildConcepts(ClassificationScheme scheme) throws JAXRException {
         
         Collection concepts = null;
@@ -2817,7 +2846,7 @@ public class UDDIMapper extends JAXRConstants{
         if (this.getConnection().useCache()) {
             try {
                 concept = (ConceptImpl)
-                objectManager.fetchObjectFromCache(tkey);
+                objectManager.fetchObjectFromCacheForUpdate(tkey);
             } catch (ClassCastException cce) {
                 logger.finest("ClassCastException in tModelInfo2Concept on fetch, continuing");
             }
@@ -2857,7 +2886,7 @@ public class UDDIMapper extends JAXRConstants{
         if (getConnection().useCache()) {
             try {
                 concept = (ConceptImpl)
-                objectManager.fetchObjectFromCache(tModelKey);
+                objectManager.fetchObjectFromCacheForUpdate(tModelKey);
             } catch (ClassCastException cce) {
                 logger.finest("ClassCastException in tModel2Concept, continuing");
                 concept = null;
@@ -2957,7 +2986,7 @@ public class UDDIMapper extends JAXRConstants{
         
         String tModelKey = model.getTModelKey();
         ro = (RegistryObjectImpl)
-        objectManager.fetchObjectFromCache(tModelKey);
+        objectManager.fetchObjectFromCacheForUpdate(tModelKey);
         if (ro != null) {
             ro.setRegistryService(this.service);
             ro.setIsLoaded(true);
@@ -5228,44 +5257,18 @@ public class UDDIMapper extends JAXRConstants{
         ByteArrayInputStream inputStream =
                 new ByteArrayInputStream(request.getBytes());
         
-        SOAPMessage msg = null;
+        Object requestObj = null;
         try {
-            Object obj = MarshallerUtil.getInstance().jaxbUnmarshalInputStream(inputStream);
-            msg = MarshallerUtil.getInstance().jaxbMarshalObject(obj);
+            requestObj = MarshallerUtil.getInstance().jaxbUnmarshalInputStream(inputStream);
         } catch (JAXBException jbe) {
             throw new JAXRException(jbe);
         }
         
         
-        Node response =
-                service.send(msg, secure);
-        Node resultNode = null;
-        String name = response.getNodeName();
-        
-        if (((SOAPBody) response).hasFault()) {
-            if (response instanceof Element) {
-                NodeList list = ((Element) response).getElementsByTagName("dispositionReport");
-                if (list != null) {
-                    int listLength = list.getLength();
-                    if (listLength > 0) {
-                        
-                        for (int i = 0; i < listLength; i++) {
-                            Node n = list.item(i);
-                            if (n != null) {
-                                resultNode = n;
-                                name = "dispositionReport";
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-        } else
-            resultNode = response.getFirstChild();
+        Object obj = service.sendJAXB(requestObj, secure);
         
         ByteArrayOutputStream outStream = null;
         try {
-            Object obj = MarshallerUtil.getInstance().jaxbUnmarshalObject(resultNode);
             outStream = (ByteArrayOutputStream) MarshallerUtil.getInstance().jaxbMarshalOutStream(obj);
         } catch (JAXBException jbe) {
             throw new JAXRException(jbe);
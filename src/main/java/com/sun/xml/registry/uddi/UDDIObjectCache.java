@@ -20,6 +20,7 @@ import javax.xml.registry.*;
 import javax.xml.registry.infomodel.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.sun.xml.registry.uddi.infomodel.*;
 import com.sun.xml.registry.uddi.*;
@@ -33,18 +34,47 @@ import com.sun.xml.registry.uddi.*;
 
 public class UDDIObjectCache {
 
-    private Hashtable cache = new Hashtable();
-    private LinkedList list = new LinkedList();
-    Collection registryServices;
-    
+    // most independently locked segments, a power of two; a small
+    // cache gets fewer so each segment keeps at least MIN_SEGMENT_SIZE
+    // entries and uneven hashing does not evict hot objects early
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 32;
+    static final int DEFAULT_MAX_CACHE_SIZE = 150;
+    // share of each segment reserved for entries that were hit more
+    // than once (segmented LRU), the rest is the probation area
+    private static final int PROTECTED_PERCENT = 80;
 
-    private static final int MAX_CACHE_SIZE = 150;
+    private final Segment[] segments;
+    private final int segmentMask;
+    // shared predefined objects by id, kept apart from the segments so
+    // they take no slots there; they are held by the taxonomies anyway
+    private final Map sharedObjects = new ConcurrentHashMap();
+    private ConnectionImpl connection;
+    Collection registryServices;
     
     public UDDIObjectCache(RegistryServiceImpl service){
 		//need to be able to get current service
 		if (registryServices == null)
 			registryServices = new ArrayList();
 		addToRegistryServices(service);
+		int maxEntries = DEFAULT_MAX_CACHE_SIZE;
+		long maxBytes = 0;
+		if (service != null)
+			connection = service.getConnection();
+		if (connection != null) {
+			maxEntries = connection.getCacheMaxEntries();
+			maxBytes = connection.getCacheMaxBytes();
+		}
+		int segmentCount = 1;
+		while ((segmentCount < MAX_SEGMENTS) &&
+		       (segmentCount * 2 * MIN_SEGMENT_SIZE <= maxEntries))
+			segmentCount *= 2;
+		segments = new Segment[segmentCount];
+		segmentMask = segmentCount - 1;
+		int segmentSize = (maxEntries + segmentCount - 1) / segmentCount;
+		long segmentBytes = (maxBytes + segmentCount - 1) / segmentCount;
+		for (int i = 0; i < segmentCount; i++)
+			segments[i] = new Segment(segmentSize, segmentBytes);
     } 
 
    
@@ -79,7 +109,23 @@ public class UDDIObjectCache {
 
     //fetches object from cache given Key string
     RegistryObject fetchObjectFromCache(String id) throws JAXRException {
-            return (RegistryObject)cache.get(id);
+            if (id == null)
+                return null;
+            Object registryObject = segmentFor(id).get(id);
+            if (registryObject == null)
+                registryObject = sharedObjects.get(id);
+            return (RegistryObject)registryObject;
+    }
+
+    //fetches an object the caller fills with registry data - shared
+    //predefined objects are not returned, the registry's copy of them
+    //goes into an object private to this connection
+    RegistryObject fetchObjectFromCacheForUpdate(String id) throws JAXRException {
+            RegistryObjectImpl registryObject =
+                (RegistryObjectImpl)fetchObjectFromCache(id);
+            if ((registryObject != null) && registryObject.isShared())
+                return null;
+            return registryObject;
     }
 
     // looks in cache, if object in cache retrieves it
@@ -91,6 +137,9 @@ public class UDDIObjectCache {
        
         BulkResponse br = null;	
 		  RegistryObjectImpl ro = null;
+        //shared predefined objects are complete and not in the registry
+        if ((registryObject != null) && registryObject.isShared())
+            return;
         if (registryObject != null) {
             RegistryServiceImpl service = (RegistryServiceImpl)registryObject.getRegistryService();
             
@@ -112,12 +161,11 @@ public class UDDIObjectCache {
     }
 	
     void removeObjectFromCache(String id) {
-        //remove the object from the LinkedList
-        if (list.size() > 0)
-                list.remove(id);
-
+        if (id == null)
+            return;
+        sharedObjects.remove(id);
         RegistryObjectImpl registryObject = 
-                (RegistryObjectImpl)cache.remove(id);			
+                (RegistryObjectImpl)segmentFor(id).remove(id);			
         if (registryObject != null) {
                 registryObject.setIsDeleted(true);
         }			
@@ -140,35 +188,173 @@ public class UDDIObjectCache {
         }  
     }	
 
-	//look for it in the linkedList, if its there remove it and
-	//put it at the front of the linked list -
-	//if the linkedList is full - take (remove)the last in the list 
-	//and remove it from the cache
+    //put the object at the front of its segment - if the segment
+    //is full the least recently used object of the segment is dropped.
+    //Shared predefined objects are only referenced outside the segments,
+    //they do not count against the bounds of this connection and never
+    //expire. The object added last for an id replaces the other kind
     private void add(RegistryObjectImpl registryObject) throws JAXRException {
 
-       String rid = (String)registryObject.getKey().getId();
-        //if the ro exists in LinkedList remove it
-        synchronized(list) {
-            list.remove(rid); 
-            list.addFirst(rid);
+        String rid = (String)registryObject.getKey().getId();
+        if (rid == null)
+            return;
+        if (registryObject.isShared()) {
+            segmentFor(rid).remove(rid);
+            sharedObjects.put(rid, registryObject);
+            return;
+        }
+        sharedObjects.remove(rid);
+        long ttl = getTimeToLive(registryObject);
+        long expiresAt = (ttl > 0) ? System.currentTimeMillis() + ttl : 0;
+        segmentFor(rid).put(rid, new CacheEntry(registryObject, 
+            registryObject.getEstimatedSize(), expiresAt));
+    }
+
+    //time to live configured for the type of the object, e.g.
+    //OrganizationImpl uses the "Organization" setting
+    private long getTimeToLive(RegistryObjectImpl registryObject) {
+        if (connection == null)
+            return 0;
+        String type = registryObject.getClass().getName();
+        type = type.substring(type.lastIndexOf('.') + 1);
+        if (type.endsWith("Impl"))
+            type = type.substring(0, type.length() - 4);
+        return connection.getCacheTimeToLive(type);
+    }
+
+    private Segment segmentFor(String id) {
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    /**
+     * One lock striped part of the cache. Keeps a segmented LRU: new
+     * objects go to the probation list, a second hit moves them to the
+     * protected list. Objects falling off the protected list go back to
+     * probation and the tail of probation is evicted. Both lists are
+     * access ordered LinkedHashMaps so every operation is O(1), and the
+     * lookup and recency state are changed under the same lock.
+     * A segment is bounded by entry count and, optionally, by the
+     * estimated size of its objects; expired entries are dropped on access.
+     */
+    private static final class Segment {
+
+        private final int capacity;
+        private final int protectedCapacity;
+        private final long maxWeight;
+        private final LinkedHashMap probation;
+        private final LinkedHashMap protectedArea;
+        private long weight;
+
+        Segment(int capacity, long maxWeight) {
+            this.capacity = Math.max(capacity, 1);
+            this.protectedCapacity = this.capacity * PROTECTED_PERCENT / 100;
+            this.maxWeight = maxWeight;
+            probation = new LinkedHashMap(16, 0.75f, true);
+            protectedArea = new LinkedHashMap(16, 0.75f, true);
         }
-        //is it in the cache already?
-        //cache s already MT safe	
-        if (cache.size() >= MAX_CACHE_SIZE) {
-        //remove the last object
-        //is it in the cache already?
-        //no - add to cache
-            String id = null;
-            synchronized(list) {
-                    id  = (String)list.removeLast();
+
+        synchronized Object get(String id) {
+            CacheEntry entry = (CacheEntry)protectedArea.get(id);
+            if (entry == null) {
+                entry = (CacheEntry)probation.remove(id);
+                if (entry == null)
+                    return null;
+                if (entry.isExpired()) {
+                    weight -= entry.weight;
+                    return null;
+                }
+                promote(id, entry);
+                return entry.value;
             }
-            RegistryObjectImpl ro = (RegistryObjectImpl)cache.remove(id);
-            //will be garbage collected when not references to object
-        } 
-        synchronized (this) {
-            cache.put(rid, registryObject);
+            if (entry.isExpired()) {
+                protectedArea.remove(id);
+                weight -= entry.weight;
+                return null;
+            }
+            return entry.value;
+        }
+
+        synchronized void put(String id, CacheEntry entry) {
+            CacheEntry old = (CacheEntry)protectedArea.remove(id);
+            if (old != null) {
+                weight += entry.weight - old.weight;
+                protectedArea.put(id, entry);
+                evict();
+                return;
+            }
+            old = (CacheEntry)probation.remove(id);
+            weight += entry.weight;
+            if (old != null) {
+                weight -= old.weight;
+                promote(id, entry);
+                return;
+            }
+            probation.put(id, entry);
+            evict();
+        }
+
+        synchronized Object remove(String id) {
+            CacheEntry entry = (CacheEntry)protectedArea.remove(id);
+            if (entry == null)
+                entry = (CacheEntry)probation.remove(id);
+            if (entry == null)
+                return null;
+            weight -= entry.weight;
+            return entry.value;
+        }
+
+        synchronized void clear() {
+            probation.clear();
+            protectedArea.clear();
+            weight = 0;
+        }
+
+        private void promote(String id, CacheEntry entry) {
+            protectedArea.put(id, entry);
+            if (protectedArea.size() > protectedCapacity) {
+                Iterator iter = protectedArea.entrySet().iterator();
+                Map.Entry eldest = (Map.Entry)iter.next();
+                iter.remove();
+                probation.put(eldest.getKey(), eldest.getValue());
+            }
+            evict();
+        }
+
+        private void evict() {
+            while ((probation.size() + protectedArea.size() > capacity) ||
+                   (maxWeight > 0 && weight > maxWeight && 
+                    probation.size() + protectedArea.size() > 1)) {
+                LinkedHashMap victims = probation.isEmpty() ? protectedArea : probation;
+                Iterator iter = victims.values().iterator();
+                CacheEntry eldest = (CacheEntry)iter.next();
+                //will be garbage collected when not references to object
+                iter.remove();
+                weight -= eldest.weight;
+            }
+        }
+    }
+
+    /**
+     * Cached object together with its estimated size in bytes
+     * and the time it expires, 0 if it never does.
+     */
+    private static final class CacheEntry {
+
+        final Object value;
+        final int weight;
+        final long expiresAt;
+
+        CacheEntry(Object value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return (expiresAt != 0) && (System.currentTimeMillis() >= expiresAt);
         }
-     
     }
         
         
@@ -183,6 +369,8 @@ public class UDDIObjectCache {
 
         BulkResponse br = null;	
 
+       if ((registryObject != null) && registryObject.isShared())
+            return;
        if (registryObject != null) {
             String id = registryObject.getKey().getId();
             if (id == null) return;
@@ -210,9 +398,9 @@ public class UDDIObjectCache {
     }
     
     void flushCache() {
-        synchronized (this) {
-            cache.clear();
-        }
+        for (int i = 0; i < segments.length; i++)
+            segments[i].clear();
+        sharedObjects.clear();
     } 
     
     void addToRegistryServices(RegistryServiceImpl service) {	
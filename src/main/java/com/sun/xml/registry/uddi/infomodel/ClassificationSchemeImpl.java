@@ -73,6 +73,7 @@ public class ClassificationSchemeImpl extends RegistryEntryImpl
      * Add a child Concept
      */
     public void addChildConcept(Concept concept) throws JAXRException {
+	checkShared();
 	if ((concept != null) && (!children.contains(concept))) {
 	    ((ConceptImpl) concept).setClassificationScheme(this);
 	    children.add(concept);
@@ -104,6 +105,7 @@ public class ClassificationSchemeImpl extends RegistryEntryImpl
      * Remove child concept
      */
     public void removeChildConcept(Concept concept) throws JAXRException {
+        checkShared();
         if (concept != null) {
             children.remove(concept);
             setIsModified(true);
@@ -115,6 +117,7 @@ public class ClassificationSchemeImpl extends RegistryEntryImpl
      * paramter as empty collection.
      */
     public void removeChildConcepts(Collection concepts) throws JAXRException {
+        checkShared();
         if (concepts != null) {
             children.removeAll(concepts);
             setIsModified(true);
@@ -178,6 +181,7 @@ public class ClassificationSchemeImpl extends RegistryEntryImpl
      * D of specification.
      */
     public void addExternalLink(ExternalLink link) throws JAXRException {
+	checkShared();
 	if (externalLinks.size() > 0) {
 	    throw new UnsupportedCapabilityException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ClassificationSchemeImpl:ExternalLink_already_exists,_cannot_add_more."));
 	}
@@ -226,6 +230,7 @@ public class ClassificationSchemeImpl extends RegistryEntryImpl
      * D of specification.
      */
     public void setExternalLinks(Collection links) throws JAXRException {
+        checkShared();
         if (links == null) {
             externalLinks.clear();
             return;
@@ -248,6 +253,7 @@ public class ClassificationSchemeImpl extends RegistryEntryImpl
      * Level 1 method
      */
     public void setValueType(int valueType) throws JAXRException{
+        checkShared();
         throw new UnsupportedCapabilityException();
     }
 
@@ -20,6 +20,8 @@ import javax.xml.registry.*;
 import javax.xml.registry.infomodel.*;
 
 import java.util.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 /**
@@ -39,6 +41,21 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
     ConceptImpl parentConcept;
     ClassificationScheme classificationScheme; 
     ArrayList children;
+    // supplies the children on first use, null once they are in children
+    transient volatile ChildrenSource childrenSource;
+
+    /**
+     * Supplies the children of a concept the first time they are
+     * needed, so that large predefined taxonomies are only turned
+     * into objects as far as they are used. The source hands the
+     * children over with setLoadedChildren.
+     */
+    public interface ChildrenSource {
+
+        void loadChildren(ConceptImpl concept) throws JAXRException;
+
+        int getChildCount(ConceptImpl concept);
+    }
 
     /**
      * Default constructor
@@ -86,7 +103,8 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * Sets the value (usually a code in a taxonomy)
      * associated with this Concept.
      */
-    public void setValue(String value) {
+    public void setValue(String value) throws JAXRException {
+        checkShared();
         this.value = value;
         setIsModified(true);
     }
@@ -95,6 +113,8 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * Add a child Concept
      */
     public void addChildConcept(Concept concept) throws JAXRException {
+        checkShared();
+        loadChildren();
         if ((concept != null) && (!children.contains(concept))) {
             ((ConceptImpl) concept).setParentConcept(this);
             children.add(concept);
@@ -124,8 +144,10 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
     /**
      * Remove child concept
      */
-    public void removeChildConcept(Concept concept) {
+    public void removeChildConcept(Concept concept) throws JAXRException {
+        checkShared();
         if (concept != null) {
+            loadChildren();
             children.remove(concept);
             setIsModified(true);
         }
@@ -135,8 +157,10 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * Remove a Collection of children Concepts. Treat
      * null parameter as empty collection.
      */
-    public void removeChildConcepts(Collection concepts) {
+    public void removeChildConcepts(Collection concepts) throws JAXRException {
+        checkShared();
         if (concepts != null) {
+            loadChildren();
             children.removeAll(concepts);
             setIsModified(true);
         }
@@ -146,6 +170,10 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * Get number of children
      */
     public int getChildConceptCount() {
+        ChildrenSource source = childrenSource;
+        if (source != null) {
+            return source.getChildCount(this);
+        }
         return children.size();
     }
 
@@ -153,6 +181,7 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * Get all immediate children Concepts
      */
     public Collection getChildrenConcepts() throws JAXRException {
+        loadChildren();
         return (Collection) children.clone();
     }
 	
@@ -161,6 +190,7 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * through all the children concepts.
      */
     public Collection getDescendantConcepts() throws JAXRException {
+        loadChildren();
         ArrayList descendants = new ArrayList(children);
         Iterator iter = children.iterator();
         while (iter.hasNext()) {
@@ -230,6 +260,51 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
 	return childrenLoaded;
     }
 
+    /**
+     * Internal method to defer the children of this concept
+     * to a source that creates them when they are first needed.
+     */
+    public void setChildrenSource(ChildrenSource source) {
+        childrenSource = source;
+    }
+
+    public ChildrenSource getChildrenSource() {
+        return childrenSource;
+    }
+
+    /**
+     * Called by the ChildrenSource with the children it created.
+     * The concepts become visible to other threads once the
+     * source is cleared.
+     */
+    public void setLoadedChildren(Collection concepts) {
+        Iterator iter = concepts.iterator();
+        while (iter.hasNext()) {
+            ConceptImpl concept = (ConceptImpl) iter.next();
+            concept.parentConcept = this;
+            children.add(concept);
+        }
+        childrenSource = null;
+    }
+
+    private void loadChildren() throws JAXRException {
+        ChildrenSource source = childrenSource;
+        if (source != null) {
+            source.loadChildren(this);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        try {
+            loadChildren();
+        } catch (JAXRException e) {
+            IOException ioe = new IOException(e.getMessage());
+            ioe.initCause(e);
+            throw ioe;
+        }
+        out.defaultWriteObject();
+    }
+
     
     /**
      * For use by Composite class only
@@ -248,6 +323,7 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * D of specification.
      */
     public void addExternalLink(ExternalLink link) throws JAXRException {
+	checkShared();
 	if (externalLinks.size() > 0) {
 	    throw new UnsupportedCapabilityException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("ConceptImpl:ExternalLink_already_exists,_cannot_add_more."));
 	}
@@ -293,6 +369,7 @@ public class ConceptImpl extends RegistryObjectImpl implements Concept, Serializ
      * D of specification.
      */
     public void setExternalLinks(Collection links) throws JAXRException {
+        checkShared();
         if (links == null) {
             externalLinks.clear();
             return;
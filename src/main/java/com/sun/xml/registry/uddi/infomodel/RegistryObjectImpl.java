@@ -46,6 +46,8 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     transient boolean isNew = true;
     transient boolean isModified = false;
     transient boolean isDeleted = false;
+    // shared by all connections, see setShared
+    transient volatile boolean isShared = false;
     transient String serviceId;
     RegistryService registryService;
     transient boolean areAssociationsLoaded = false;
@@ -88,6 +90,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Override superclass to set isModified
      */
     public void addSlot(Slot slot) throws JAXRException {
+        checkShared();
         super.addSlot(slot);
         setIsModified(true);
     }
@@ -96,6 +99,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Override superclass to set isModified
      */
     public void addSlots(Collection slots) throws JAXRException {
+        checkShared();
         super.addSlots(slots);
         setIsModified(true);
     }
@@ -104,6 +108,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Override superclass to set isModified
      */
     public void removeSlot(String slotName) throws JAXRException {
+        checkShared();
         super.removeSlot(slotName);
         setIsModified(true);
     }
@@ -112,6 +117,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Override superclass to set isModified
      */
     public void removeSlots(Collection slotNames) throws JAXRException {
+        checkShared();
         super.removeSlots(slotNames);
         setIsModified(true);
     }
@@ -120,6 +126,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Adds specified Association to use this object as source.
      */
     public void addAssociation(Association association) throws JAXRException {
+	checkShared();
 	if (association == null) {
 	    return;
 	}
@@ -151,6 +158,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Removes specified Association from this object.
      */
     public void removeAssociation(Association association) throws JAXRException {
+	checkShared();
 	if (association != null) {
 	    associations.remove(association);
             setIsModified(true);
@@ -162,6 +170,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * parameter as empty collection.
      */
     public void removeAssociations(Collection associations) throws JAXRException {
+	checkShared();
 	if (associations != null) {
 	    this.associations.removeAll(associations);
             setIsModified(true);
@@ -187,6 +196,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * specified Associations. Treat null param as empty collection.
      */
     public void setAssociations(Collection associations) throws JAXRException {
+	checkShared();
 	this.associations.clear();
 	addAssociations(associations);
         setIsModified(true);
@@ -210,6 +220,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Adds specified Classification to this object.
      */
     public void addClassification(Classification classification) throws JAXRException {
+        checkShared();
         if (classification == null) {
 	    return;
 	}
@@ -242,6 +253,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Removes specified Classification from this object.
      */
     public void removeClassification(Classification classification) throws JAXRException {
+        checkShared();
         if (classification != null) {
             getObject();
             classifications.remove(classification);
@@ -254,6 +266,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * parameter as empty collection.
      */
     public void removeClassifications(Collection classifications) throws JAXRException {
+        checkShared();
         if (classifications != null) {
             getObject();
 	    this.classifications.removeAll(classifications);
@@ -276,6 +289,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Classififications. Treat null param as empty collection.
      */
     public void setClassifications(Collection classifications) throws JAXRException {
+        checkShared();
         getObject();
 	this.classifications.clear();
 	addClassifications(classifications);
@@ -287,6 +301,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      */
     public void addExternalIdentifier(ExternalIdentifier identifier) 
 	throws JAXRException {
+	    checkShared();
 	    if (identifier == null) {
 		return;
 	    }
@@ -321,6 +336,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      */
     public void removeExternalIdentifier(ExternalIdentifier externalIdentifier) 
 	throws JAXRException {
+	    checkShared();
 	    if (externalIdentifier != null) {
                 getObject();
 		externalIdentifiers.remove(externalIdentifier);
@@ -334,6 +350,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      */
     public void removeExternalIdentifiers(Collection externalIdentifiers) 
 	throws JAXRException {
+	    checkShared();
 	    if (externalIdentifiers != null) {
                 getObject();
 		this.externalIdentifiers.removeAll(externalIdentifiers);
@@ -357,6 +374,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      */
     public void setExternalIdentifiers(Collection externalIdentifiers) 	
 	throws JAXRException {
+            checkShared();
             getObject();
 	    this.externalIdentifiers.clear();
 	    addExternalIdentifiers(externalIdentifiers);
@@ -385,6 +403,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Removes specified ExternalLink from this object.
      */
     public void removeExternalLink(ExternalLink externalLink) throws JAXRException {
+	checkShared();
 	if (externalLink != null) {
             getObject();
 	    externalLinks.remove(externalLink);
@@ -397,6 +416,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * as empty collection.
      */
     public void removeExternalLinks(Collection externalLinks) throws JAXRException {
+	checkShared();
 	if (externalLinks != null) {
             getObject();
 	    this.externalLinks.removeAll(externalLinks);
@@ -439,6 +459,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Set the desciption for the object
      */
     public void setDescription(InternationalString description) throws JAXRException {
+	checkShared();
 	if (description != null) {
             getObject();
 	    this.description = description;
@@ -463,6 +484,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Set the name for the object
      */
     public void setName(InternationalString name) throws JAXRException {
+	checkShared();
 	if (name != null) {
             getObject();
 	    this.name = name;
@@ -483,6 +505,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Set registry key on this object
      */
     public void setKey(Key key) throws JAXRException {
+	checkShared();
 	this.key = key;
         setIsModified(true);
     }
@@ -498,6 +521,7 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * Internal method for setting submitting organization
      */
     public void setSubmittingOrganization(Organization org) throws JAXRException {
+        checkShared();
         submittingOrganization = org;
     }
     
@@ -523,10 +547,14 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
      * is created
      */
     public void setLifeCycleManager(LifeCycleManager manager) {
+        if (isShared)
+            return;
         lifeCycleManager = manager;
     }
     
     public void setServiceId(String serviceId) {
+	if (isShared)
+	    return;
 	this.serviceId = serviceId;
     }
 	
@@ -535,6 +563,8 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     }
     
     public void setRegistryService(RegistryService service) {
+        if (isShared)
+            return;
         this.registryService = service;
     }
     
@@ -544,6 +574,8 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     
     public synchronized void setStatusFlags(boolean retrieved, boolean loaded, 
 					    boolean isNew) {
+	if (isShared)
+	    return;
 	this.isRetrieved = retrieved;
 	this.isLoaded = loaded;
 	this.isNew = isNew;	
@@ -554,6 +586,8 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     }
 	
     public synchronized void setIsLoaded(boolean loaded){
+	if (isShared)
+	    return;
 	isLoaded = loaded;
     }
 	
@@ -562,6 +596,8 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     }
 	
     public synchronized void setIsRetrieved(boolean retrieved){
+	if (isShared)
+	    return;
 	isDeleted = false;
 	isRetrieved = retrieved;
     }
@@ -571,6 +607,8 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     }
 	
     public synchronized void setIsNew(boolean isNew){	
+	if (isShared)
+	    return;
 	this.isNew = isNew;
     }
 	
@@ -579,6 +617,8 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     }
 	
     public void setIsModified(boolean modified){
+	if (isShared)
+	    return;
 	isModified = modified;
     }
 	
@@ -587,9 +627,33 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
     }
 	
     public synchronized void setIsDeleted(boolean deleted){
+	if (isShared)
+	    return;
 	isDeleted = deleted;
     }
 
+    /**
+     * Internal method marking a fully built predefined object as
+     * shared by all connections of the JVM. From then on the object
+     * is immutable: its JAXR mutators throw UnsupportedCapabilityException
+     * and the per connection state the provider sets on objects it
+     * hands out (service id, status flags, registry service) is not
+     * recorded, it stays in the connection's object cache instead.
+     */
+    public void setShared() {
+        isShared = true;
+    }
+
+    public boolean isShared() {
+        return isShared;
+    }
+
+    void checkShared() throws UnsupportedCapabilityException {
+        if (isShared) {
+            throw new UnsupportedCapabilityException(ResourceBundle.getBundle("com/sun/xml/registry/uddi/LocalStrings").getString("RegistryObjectImpl:Shared_predefined_objects_cannot_be_modified"));
+        }
+    }
+
     /**
      * Internal method
      */
@@ -609,6 +673,28 @@ public abstract class RegistryObjectImpl extends ExtensibleObjectImpl implements
 	}		
     }
     
+    /**
+     * Internal method giving a rough estimate of the heap used by
+     * this object, used to bound the size of the object cache.
+     * Does not trigger loading of the object.
+     */
+    public int getEstimatedSize() {
+        int size = 256;
+        try {
+            if ((key != null) && (key.getId() != null))
+                size += 2 * key.getId().length();
+            if ((name != null) && (name.getValue() != null))
+                size += 2 * name.getValue().length();
+            if ((description != null) && (description.getValue() != null))
+                size += 2 * description.getValue().length();
+        } catch (JAXRException e) {
+            //keep the base estimate
+        }
+        size += 128 * (associations.size() + classifications.size() +
+            externalIdentifiers.size() + externalLinks.size());
+        return size;
+    }
+
     UDDIObjectCache getObjectManager() throws JAXRException {
         if (registryService == null) {
             if (lifeCycleManager != null)